@@ -55,6 +55,7 @@ import rx.Single;
 import rx.SingleSubscriber;
 import rx.android.schedulers.AndroidSchedulers;
 import rx.functions.Action0;
+import rx.functions.Action1;
 import rx.functions.Func1;
 import rx.schedulers.Schedulers;
 
@@ -194,6 +195,20 @@ public class BenchmarkActivity extends AppCompatActivity {
                         return startSelectAllWithHandWritten();
                     }
                 })
+                .flatMap(new Func1<Result, Single<Result>>() {
+                    @Override
+                    public Single<Result> call(Result result) {
+                        adapter.add(result);
+                        return startCursorMoveToPositionWithOrma();
+                    }
+                })
+                .flatMap(new Func1<Result, Single<Result>>() {
+                    @Override
+                    public Single<Result> call(Result result) {
+                        adapter.add(result);
+                        return startCursorMoveToNextWithOrma();
+                    }
+                })
                 .subscribe(new SingleSubscriber<Result>() {
                     @Override
                     public void onSuccess(Result result) {
@@ -331,6 +346,61 @@ public class BenchmarkActivity extends AppCompatActivity {
                 .observeOn(AndroidSchedulers.mainThread());
     }
 
+    /**
+     * Reads all the rows with {@code moveToPosition()} per row, which Orma used to do in {@code forEach()}.
+     */
+    Single<Result> startCursorMoveToPositionWithOrma() {
+        return Single.create(new Single.OnSubscribe<Result>() {
+            @Override
+            public void call(SingleSubscriber<? super Result> subscriber) {
+                long t0 = System.currentTimeMillis();
+                int count = 0;
+
+                Todo_Selector todos = orma.selectFromTodo().orderByCreatedTimeAsc();
+                Cursor cursor = todos.execute();
+                try {
+                    for (int pos = 0; cursor.moveToPosition(pos); pos++) {
+                        @SuppressWarnings("unused")
+                        Todo todo = todos.newModelFromCursor(cursor);
+                        count++;
+                    }
+                } finally {
+                    cursor.close();
+                }
+
+                Log.d(TAG, "Orma/moveToPosition count: " + count);
+                subscriber.onSuccess(new Result("Orma/moveToPosition", System.currentTimeMillis() - t0));
+            }
+        })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    /**
+     * Reads all the rows with {@code forEach()}, which walks the cursor with {@code moveToNext()}.
+     */
+    Single<Result> startCursorMoveToNextWithOrma() {
+        return Single.create(new Single.OnSubscribe<Result>() {
+            @Override
+            public void call(SingleSubscriber<? super Result> subscriber) {
+                long t0 = System.currentTimeMillis();
+                final AtomicInteger count = new AtomicInteger();
+
+                orma.selectFromTodo().orderByCreatedTimeAsc().forEach(new Action1<Todo>() {
+                    @Override
+                    public void call(Todo todo) {
+                        count.incrementAndGet();
+                    }
+                });
+
+                Log.d(TAG, "Orma/moveToNext count: " + count);
+                subscriber.onSuccess(new Result("Orma/moveToNext", System.currentTimeMillis() - t0));
+            }
+        })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
     Single<Result> startSelectAllWithRealm() {
         return Single.create(new Single.OnSubscribe<Result>() {
             @Override
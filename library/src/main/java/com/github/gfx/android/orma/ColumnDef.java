@@ -15,6 +15,7 @@
  */
 package com.github.gfx.android.orma;
 
+import android.database.Cursor;
 import android.support.annotation.NonNull;
 
 import java.lang.reflect.Type;
@@ -91,6 +92,14 @@ public abstract class ColumnDef<Model, T> {
 
     public abstract Object getSerialized(@NonNull Model model);
 
+    /**
+     * @param conn   Used to retrieve instances that depends on a connection
+     * @param cursor A cursor that has the column
+     * @param index  The index of the column in {@code cursor}
+     * @return The deserialized value of the column
+     */
+    public abstract T getFromCursor(@NonNull OrmaConnection conn, @NonNull Cursor cursor, int index);
+
     public OrderSpec<Model> orderInAscending() {
         return new OrderSpec<>(this, OrderSpec.ASC);
     }
@@ -21,6 +21,9 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import rx.Observable;
 import rx.Single;
 import rx.SingleSubscriber;
@@ -31,12 +34,34 @@ import rx.Subscriber;
  */
 public class Inserter<Model> {
 
+    /**
+     * The default of {@code SQLITE_MAX_VARIABLE_NUMBER}, the max number of bind args in a statement.
+     */
+    static final int MAX_VARIABLE_NUMBER = 999;
+
+    /**
+     * The max number of rows in a multi-row {@code INSERT} statement. {@code SQLITE_MAX_COMPOUND_SELECT} is 500.
+     */
+    static final int MAX_ROWS_PER_STATEMENT = 100;
+
     final OrmaConnection conn;
 
     final Schema<Model> schema;
 
+    final int onConflictAlgorithm;
+
     final boolean withoutAutoId;
 
+    final int columnsPerRow;
+
+    final int rowsPerStatement;
+
+    /**
+     * {@code true} if each multi-row {@code INSERT} statement gives consecutive row ids to all of its rows, so that
+     * the first row id is computed from the last one.
+     */
+    final boolean consecutiveRowIds;
+
     final SQLiteStatement statement;
 
     final String sql;
@@ -45,7 +70,13 @@ public class Inserter<Model> {
         SQLiteDatabase db = conn.getWritableDatabase();
         this.conn = conn;
         this.schema = schema;
+        this.onConflictAlgorithm = onConflictAlgorithm;
         this.withoutAutoId = withoutAutoId;
+        this.columnsPerRow = countColumnsPerRow(schema, withoutAutoId);
+        this.rowsPerStatement = Math.max(1, Math.min(MAX_ROWS_PER_STATEMENT, MAX_VARIABLE_NUMBER / columnsPerRow));
+        // SQLite assigns row ids only to rows without explicit ones, and rows ignored or replaced leave gaps
+        this.consecutiveRowIds = withoutAutoId && schema.getPrimaryKey().isAutoValue()
+                && onConflictAlgorithm != OnConflict.IGNORE && onConflictAlgorithm != OnConflict.REPLACE;
         sql = schema.getInsertStatement(onConflictAlgorithm, withoutAutoId);
         statement = db.compileStatement(sql);
     }
@@ -54,6 +85,16 @@ public class Inserter<Model> {
         this(conn, schema, OnConflict.NONE, true);
     }
 
+    static int countColumnsPerRow(Schema<?> schema, boolean withoutAutoId) {
+        int count = 0;
+        for (ColumnDef<?, ?> column : schema.getColumns()) {
+            if (!(withoutAutoId && column.isAutoValue())) {
+                count++;
+            }
+        }
+        return Math.max(1, count);
+    }
+
     /**
      * <p>Inserts {@code model} into a table. Ths method does not modify the {@code model} even if a new row id is given to
      * it.</p>
@@ -62,11 +103,20 @@ public class Inserter<Model> {
      * @return The last inserted row id
      */
     public long execute(@NonNull Model model) {
+        Object[] args = (conn.trace || conn.isQueryReported())
+                ? schema.convertToArgs(conn, model, withoutAutoId) : null;
         if (conn.trace) {
-            conn.trace(sql, schema.convertToArgs(conn, model, withoutAutoId));
+            conn.trace(sql, args);
         }
         schema.bindArgs(conn, statement, model, withoutAutoId);
-        return statement.executeInsert();
+        try {
+            long t0 = System.nanoTime();
+            long rowId = statement.executeInsert();
+            conn.onQueryExecuted(sql, args, t0, rowId != -1 ? 1 : 0);
+            return rowId;
+        } finally {
+            onTableChanged();
+        }
     }
 
     /**
@@ -77,10 +127,98 @@ public class Inserter<Model> {
         return execute(modelFactory.call());
     }
 
-    public void executeAll(@NonNull Iterable<Model> models) {
+    /**
+     * <p>Inserts {@code models} in a transaction. Models are inserted in chunks by multi-row {@code INSERT}
+     * statements, whose bind args are kept under {@code SQLITE_MAX_VARIABLE_NUMBER}.</p>
+     *
+     * @param models model objects to insert
+     * @return The range of inserted row ids; see {@link RowIdRange} for its limitation
+     */
+    @NonNull
+    public RowIdRange executeAll(@NonNull Iterable<Model> models) {
+        SQLiteDatabase db = conn.getWritableDatabase();
+        conn.beginTransaction(db, true);
+        boolean successful = false;
+        try {
+            RowIdRange range = executeAllInChunks(db, models);
+            db.setTransactionSuccessful();
+            successful = true;
+            return range;
+        } finally {
+            conn.endTransaction(db, successful);
+        }
+    }
+
+    RowIdRange executeAllInChunks(SQLiteDatabase db, Iterable<Model> models) {
+        long first = -1;
+        long last = -1;
+        List<Model> chunk = new ArrayList<>(rowsPerStatement);
         for (Model model : models) {
-            execute(model);
+            chunk.add(model);
+            if (chunk.size() == rowsPerStatement) {
+                long rowId = executeChunk(db, chunk);
+                if (rowId != -1) {
+                    if (first == -1 && consecutiveRowIds) {
+                        first = rowId - chunk.size() + 1;
+                    }
+                    last = rowId;
+                }
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            long rowId = executeChunk(db, chunk);
+            if (rowId != -1) {
+                if (first == -1 && consecutiveRowIds) {
+                    first = rowId - chunk.size() + 1;
+                }
+                last = rowId;
+            }
+        }
+        return last == -1 ? RowIdRange.EMPTY : new RowIdRange(first, last);
+    }
+
+    long executeChunk(SQLiteDatabase db, List<Model> chunk) {
+        int numRows = chunk.size();
+        if (numRows == 1) {
+            return execute(chunk.get(0));
         }
+
+        String sql = schema.getInsertStatement(onConflictAlgorithm, withoutAutoId, numRows);
+        Object[] bindArgs = null;
+        if (conn.trace || conn.isQueryReported()) {
+            List<Object> args = new ArrayList<>();
+            for (Model model : chunk) {
+                for (Object arg : schema.convertToArgs(conn, model, withoutAutoId)) {
+                    args.add(arg);
+                }
+            }
+            bindArgs = args.toArray();
+            if (conn.trace) {
+                conn.trace(sql, bindArgs);
+            }
+        }
+
+        SQLiteStatement statement = conn.getStatementCache().acquire(db, sql);
+        try {
+            for (int i = 0; i < numRows; i++) {
+                schema.bindArgs(conn, statement, chunk.get(i), withoutAutoId, columnsPerRow * i);
+            }
+            long t0 = System.nanoTime();
+            long rowId = statement.executeInsert();
+            conn.onQueryExecuted(sql, bindArgs, t0, rowId != -1 ? numRows : 0);
+            return rowId;
+        } finally {
+            conn.getStatementCache().release(sql, statement);
+            onTableChanged();
+        }
+    }
+
+    /**
+     * {@code INSERT} changes existing rows only with {@link OnConflict#REPLACE}, which deletes conflicting rows.
+     */
+    void onTableChanged() {
+        conn.onTableChanged(schema, onConflictAlgorithm == OnConflict.REPLACE);
     }
 
     /**
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Receives the start, the end, and the failure of the migration, which are called on the thread running the
+ * migration. Progress of each migration step is reported to the migration's
+ * {@link com.github.gfx.android.orma.migration.TraceListener}.
+ *
+ * <p>Do not access the database in {@link #onMigrationStarted()} and {@link #onMigrationFailed(Throwable, long)},
+ * where the migration is not completed. If the migration runs in background, the access waits for the migration,
+ * which is waiting for the callback, so it blocks until the migration timeout if any. Otherwise the migration runs lazily while the
+ * connection's monitor is held, which is reentrant, so the access starts the migration again on the same thread.
+ * The database is ready in {@link #onMigrationFinished(long)}.</p>
+ *
+ * @see OrmaDatabaseBuilderBase#migrationListener(MigrationListener)
+ */
+public interface MigrationListener {
+
+    void onMigrationStarted();
+
+    void onMigrationFinished(long elapsedMillis);
+
+    /**
+     * @param error Any exception or error thrown by the migration, which is thrown again after this callback
+     */
+    void onMigrationFailed(@NonNull Throwable error, long elapsedMillis);
+}
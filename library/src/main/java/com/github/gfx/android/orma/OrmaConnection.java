@@ -16,9 +16,16 @@
 package com.github.gfx.android.orma;
 
 import com.github.gfx.android.orma.exception.DatabaseAccessOnMainThreadException;
+import com.github.gfx.android.orma.exception.MigrationTimeoutException;
 import com.github.gfx.android.orma.exception.NoValueException;
+import com.github.gfx.android.orma.exception.OrmaException;
+import com.github.gfx.android.orma.internal.CountCache;
+import com.github.gfx.android.orma.internal.ModelCache;
+import com.github.gfx.android.orma.internal.OrmaConditionBase;
+import com.github.gfx.android.orma.internal.ReadConnectionPool;
+import com.github.gfx.android.orma.internal.StatementCache;
 import com.github.gfx.android.orma.migration.MigrationEngine;
-import com.github.gfx.android.orma.migration.sqliteparser.SQLiteParserUtils;
+import com.github.gfx.android.orma.migration.sqliteparser.SQLiteParserCache;
 
 import android.annotation.TargetApi;
 import android.content.ContentValues;
@@ -26,7 +33,10 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteQuery;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.database.sqlite.SQLiteStatement;
 import android.os.AsyncTask;
@@ -38,18 +48,40 @@ import android.support.annotation.WorkerThread;
 import android.text.TextUtils;
 import android.util.Log;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
+import rx.subjects.Subject;
 
 /**
  * Low-level interface to Orma database connection.
  */
 public class OrmaConnection {
 
-    static final String TAG = "Orma";
+    public static final String TAG = "Orma";
 
     static final String[] countSelections = {"COUNT(*)"};
 
+    static final String[] existsSelections = {"1"};
+
+    /**
+     * The default of {@link SQLiteDatabase#setMaxSqlCacheSize(int)}.
+     */
+    static final int DEFAULT_SQL_CACHE_SIZE = 25;
+
     final String name;
 
     /**
@@ -73,7 +105,85 @@ public class OrmaConnection {
 
     final AccessThreadConstraint writeOnMainThread;
 
-    boolean migrationCompleted = false;
+    final StatementCache statementCache;
+
+    final ModelCache modelCache;
+
+    final CountCache countCache;
+
+    final Map<Schema<?>, Set<String>> dependentTableNames = new HashMap<>();
+
+    @Nullable
+    final QueryListener queryListener;
+
+    /**
+     * The threshold of the slow query log in nanoseconds, or {@code -1} if disabled.
+     */
+    final long slowQueryThresholdNanos;
+
+    @NonNull
+    final SlowQueryListener slowQueryListener;
+
+    @Nullable
+    final QueryMetrics metrics;
+
+    /**
+     * {@link System#nanoTime()} when the outermost transaction of the current thread began, used by {@link #metrics}.
+     */
+    final ThreadLocal<long[]> transactionStartNanos = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    /**
+     * Names of tables that have indexed columns, which should not be scanned fully.
+     */
+    @Nullable
+    volatile Set<String> indexedTableNames;
+
+    @Nullable
+    final String path;
+
+    final int readConnectionPoolSize;
+
+    @Nullable
+    volatile ReadConnectionPool readConnectionPool;
+
+    final Thread mainThread = Looper.getMainLooper().getThread();
+
+    volatile boolean migrationCompleted = false;
+
+    @Nullable
+    final MigrationListener migrationListener;
+
+    /**
+     * Released when the background migration finishes, or {@code null} if the migration runs on the first access.
+     */
+    @Nullable
+    final CountDownLatch backgroundMigrationLatch;
+
+    /**
+     * The timeout to wait for the background migration in milliseconds, or {@code -1} to wait forever.
+     */
+    final long migrationTimeoutMillis;
+
+    @Nullable
+    volatile Throwable backgroundMigrationError;
+
+    /**
+     * {@code SQLITE_VERSION_NUMBER}, or {@code -1} if not yet queried.
+     */
+    volatile int sqliteVersionNumber = -1;
+
+    final Subject<Set<String>, Set<String>> tableChanges
+            = new SerializedSubject<>(PublishSubject.<Set<String>>create());
+
+    /**
+     * Tables changed in the current thread's transaction, which are published when the transaction is committed.
+     */
+    final ThreadLocal<PendingTableChanges> pendingTableChanges = new ThreadLocal<>();
 
     public OrmaConnection(@NonNull OrmaDatabaseBuilderBase<?> builder, List<Schema<?>> schemas) {
         this.name = builder.name;
@@ -86,10 +196,29 @@ public class OrmaConnection {
         this.tryParsingSql = builder.tryParsingSql;
         this.trace = builder.trace;
         this.readOnMainThread = builder.readOnMainThread;
-        this.writeOnMainThread = builder.readOnMainThread;
+        this.writeOnMainThread = builder.writeOnMainThread;
+        this.statementCache = new StatementCache(builder.statementCacheSize);
+        this.modelCache = new ModelCache(builder.modelCacheSize);
+        this.countCache = new CountCache(builder.countCacheSize);
+        this.queryListener = builder.queryListener;
+        this.slowQueryThresholdNanos = builder.slowQueryThresholdMillis >= 0
+                ? TimeUnit.MILLISECONDS.toNanos(builder.slowQueryThresholdMillis) : -1;
+        this.slowQueryListener = builder.slowQueryListener;
+        this.metrics = builder.collectMetrics ? new QueryMetrics() : null;
+        this.path = name != null ? builder.context.getDatabasePath(name).getPath() : null;
+        this.readConnectionPoolSize = (wal && path != null) ? builder.readConnectionPoolSize : 0;
         this.db = openDatabase(builder.context);
+        this.migrationListener = builder.migrationListener;
+        this.migrationTimeoutMillis = builder.migrationTimeoutMillis;
 
         checkSchemas(schemas);
+
+        if (builder.migrateInBackground) {
+            backgroundMigrationLatch = new CountDownLatch(1);
+            startBackgroundMigration();
+        } else {
+            backgroundMigrationLatch = null;
+        }
     }
 
     private SQLiteDatabase openDatabase(Context context) {
@@ -126,9 +255,313 @@ public class OrmaConnection {
         return schemas;
     }
 
-    public synchronized SQLiteDatabase getWritableDatabase() {
+    /**
+     * @return The version of the SQLite library in the form of {@code SQLITE_VERSION_NUMBER}, e.g. {@code 3024000}
+     * for {@code 3.24.0}
+     */
+    public int getSQLiteVersionNumber() {
+        if (sqliteVersionNumber == -1) {
+            String version = DatabaseUtils.stringForQuery(getReadableDatabase(), "SELECT sqlite_version()", null);
+            sqliteVersionNumber = parseSQLiteVersion(version);
+        }
+        return sqliteVersionNumber;
+    }
+
+    /**
+     * @param version A version string, e.g. {@code "3.24.0"}
+     * @return The version in the form of {@code SQLITE_VERSION_NUMBER}, e.g. {@code 3024000}
+     */
+    public static int parseSQLiteVersion(@NonNull String version) {
+        String[] parts = version.split("\\.");
+        int versionNumber = 0;
+        for (int i = 0; i < 3; i++) {
+            versionNumber *= 1000;
+            if (i < parts.length) {
+                versionNumber += Integer.parseInt(parts[i]);
+            }
+        }
+        return versionNumber;
+    }
+
+    /**
+     * @return {@code true} if {@code INSERT ... ON CONFLICT ... DO UPDATE}, available since SQLite 3.24.0, is supported
+     */
+    public boolean isUpsertSupported() {
+        return getSQLiteVersionNumber() >= 3024000;
+    }
+
+    /**
+     * @return The cache of compiled statements used by {@code update()}, {@code delete()} and {@code count()}
+     */
+    @NonNull
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * @return Metrics of statements and transactions, or {@code null} unless
+     * {@link OrmaDatabaseBuilderBase#collectMetrics(boolean)} is enabled
+     */
+    @Nullable
+    public QueryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The cache of models keyed by primary keys, used by {@link SingleAssociation} and primary key queries
+     */
+    @NonNull
+    public ModelCache getModelCache() {
+        return modelCache;
+    }
+
+    /**
+     * @return The cache of {@code COUNT(*)} results used by {@link #count(Schema, String, Object[])}
+     */
+    @NonNull
+    public CountCache getCountCache() {
+        return countCache;
+    }
+
+    /**
+     * @return The names of {@code schema}'s table and the tables joined for its direct associations
+     */
+    @NonNull
+    public synchronized Set<String> getDependentTableNames(@NonNull Schema<?> schema) {
+        Set<String> tableNames = dependentTableNames.get(schema);
+        if (tableNames == null) {
+            tableNames = new HashSet<>();
+            collectDependentTableNames(schema, tableNames);
+            tableNames = Collections.unmodifiableSet(tableNames);
+            dependentTableNames.put(schema, tableNames);
+        }
+        return tableNames;
+    }
+
+    void collectDependentTableNames(@NonNull Schema<?> schema, @NonNull Set<String> tableNames) {
+        if (!tableNames.add(schema.getTableName())) {
+            return;
+        }
+        for (ColumnDef<?, ?> column : schema.getColumns()) {
+            for (Schema<?> associatedSchema : schemas) {
+                if (column.type == associatedSchema.getModelClass()) {
+                    collectDependentTableNames(associatedSchema, tableNames);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called after {@code schema}'s table is written, to invalidate caches and to publish the change.
+     *
+     * @param schema              The written table
+     * @param existingRowsChanged {@code true} if existing rows may be updated or deleted
+     */
+    void onTableChanged(@NonNull Schema<?> schema, boolean existingRowsChanged) {
+        if (existingRowsChanged) {
+            invalidateModelCache(schema);
+
+            PendingTableChanges changes = getPendingTableChanges();
+            if (changes != null) {
+                changes.modelSchemas.add(schema);
+            }
+        }
+        invalidateCountCache(schema);
+
+        PendingTableChanges changes = getPendingTableChanges();
+        if (changes != null) {
+            changes.countSchemas.add(schema);
+        }
+        notifyTableChanged(schema);
+    }
+
+    void invalidateCountCache(@NonNull Schema<?> schema) {
+        if (!countCache.isEnabled()) {
+            return;
+        }
+        if (foreignKeys) {
+            countCache.evictAll();
+        } else {
+            countCache.invalidate(schema.getTableName());
+        }
+    }
+
+    /**
+     * Puts {@code model} into the model cache, unless the current thread is in a transaction that may be rolled back,
+     * or the cache is invalidated after {@code generation} is taken.
+     *
+     * @param generation {@link ModelCache#generation()} taken before the query that loads {@code model}
+     */
+    <T> void cacheModel(@NonNull Schema<T> schema, @NonNull T model, int generation) {
+        if (modelCache.isEnabled() && !db.inTransaction()) {
+            modelCache.put(schema, model, generation);
+        }
+    }
+
+    /**
+     * Invalidates cached models after {@code schema}'s table is modified. All the models are invalidated
+     * if foreign keys are enabled, because their actions may modify other tables.
+     */
+    void invalidateModelCache(@NonNull Schema<?> schema) {
+        if (!modelCache.isEnabled()) {
+            return;
+        }
+        if (foreignKeys) {
+            modelCache.evictAll();
+        } else {
+            modelCache.invalidate(schema);
+        }
+    }
+
+    /**
+     * Publishes the names of changed tables. Changes in a transaction started by {@link #transactionSync(TransactionTask)}
+     * or its variants are coalesced into an event after the transaction is committed, and discarded if it is rolled back.
+     * Events are delivered in the thread that writes the tables.
+     *
+     * @return An {@link Observable} of sets of changed table names
+     */
+    @NonNull
+    public Observable<Set<String>> observeTableChanges() {
+        return tableChanges.asObservable();
+    }
+
+    /**
+     * Records that {@code schema}'s table is changed, which is published by {@link #observeTableChanges()}.
+     */
+    void notifyTableChanged(@NonNull Schema<?> schema) {
+        notifyTableChanged(Collections.singleton(schema.getTableName()));
+    }
+
+    void notifyTableChanged(@NonNull Set<String> tableNames) {
+        PendingTableChanges changes = getPendingTableChanges();
+        if (changes != null) {
+            changes.tableNames.addAll(tableNames);
+        } else if (tableChanges.hasObservers()) {
+            tableChanges.onNext(tableNames);
+        }
+    }
+
+    /**
+     * @return The changes in the current thread's transaction, or {@code null} if it is not in a transaction
+     */
+    @Nullable
+    PendingTableChanges getPendingTableChanges() {
+        if (!db.inTransaction()) {
+            return null;
+        }
+        PendingTableChanges changes = pendingTableChanges.get();
+        if (changes == null) {
+            changes = new PendingTableChanges();
+            pendingTableChanges.set(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * Begins a transaction, recording the time to acquire the lock if metrics are enabled. It must be ended by
+     * {@link #endTransaction(SQLiteDatabase, boolean)}.
+     */
+    void beginTransaction(@NonNull SQLiteDatabase db, boolean exclusive) {
+        if (metrics == null) {
+            if (exclusive) {
+                db.beginTransaction();
+            } else {
+                db.beginTransactionNonExclusive();
+            }
+            return;
+        }
+
+        boolean outermost = !db.inTransaction();
+        long t0 = System.nanoTime();
+        if (exclusive) {
+            db.beginTransaction();
+        } else {
+            db.beginTransactionNonExclusive();
+        }
+        long t1 = System.nanoTime();
+        if (outermost) {
+            metrics.recordLockWait(t1 - t0);
+            transactionStartNanos.get()[0] = t1;
+        }
+    }
+
+    /**
+     * Ends a transaction and publishes the changes in it if the outermost transaction is committed.
+     * Whether it is committed or rolled back, the outermost transaction invalidates the caches of the changed tables
+     * again, because readers on other connections may have cached rows of the tables while it is open.
+     *
+     * @param db         The database in a transaction
+     * @param successful {@code true} if {@link SQLiteDatabase#setTransactionSuccessful()} is called
+     */
+    void endTransaction(@NonNull SQLiteDatabase db, boolean successful) {
+        db.endTransaction();
+
+        if (metrics != null && !db.inTransaction()) {
+            metrics.recordTransaction(System.nanoTime() - transactionStartNanos.get()[0]);
+        }
+
+        PendingTableChanges changes = pendingTableChanges.get();
+        if (changes == null) {
+            return;
+        }
+        if (!successful) {
+            // a failed nested transaction rolls back the outermost one
+            changes.failed = true;
+        }
+        if (!db.inTransaction()) {
+            pendingTableChanges.remove();
+            if (changes.allTablesChanged) {
+                modelCache.evictAll();
+                countCache.evictAll();
+            } else {
+                for (Schema<?> schema : changes.modelSchemas) {
+                    invalidateModelCache(schema);
+                }
+                // also bumps the generation, so counts queried before this point are not cached
+                for (Schema<?> schema : changes.countSchemas) {
+                    invalidateCountCache(schema);
+                }
+            }
+            if (!changes.failed && !changes.tableNames.isEmpty() && tableChanges.hasObservers()) {
+                tableChanges.onNext(Collections.unmodifiableSet(changes.tableNames));
+            }
+        }
+    }
+
+    @NonNull
+    Set<String> getAllTableNames() {
+        Set<String> tableNames = new HashSet<>();
+        for (Schema<?> schema : schemas) {
+            tableNames.add(schema.getTableName());
+        }
+        return tableNames;
+    }
+
+    static class PendingTableChanges {
+
+        final Set<String> tableNames = new HashSet<>();
+
+        /**
+         * Tables whose existing rows may be changed, of which cached models are invalidated again at the end
+         */
+        final Set<Schema<?>> modelSchemas = new HashSet<>();
+
+        /**
+         * Tables of which cached counts are invalidated again at the end
+         */
+        final Set<Schema<?>> countSchemas = new HashSet<>();
+
+        /**
+         * {@code true} if tables are changed by {@link #execSQL(String, Object...)}, which can change any table
+         */
+        boolean allTablesChanged = false;
+
+        boolean failed = false;
+    }
+
+    public SQLiteDatabase getWritableDatabase() {
         if (writeOnMainThread != AccessThreadConstraint.NONE) {
-            if (Looper.getMainLooper().getThread() == Thread.currentThread()) {
+            if (mainThread == Thread.currentThread()) {
                 if (writeOnMainThread == AccessThreadConstraint.FATAL) {
                     throw new DatabaseAccessOnMainThreadException("Writing things must run in background");
                 } else {
@@ -136,16 +569,13 @@ public class OrmaConnection {
                 }
             }
         }
-        if (!migrationCompleted) {
-            onMigrate(db);
-            migrationCompleted = true;
-        }
+        ensureMigrated();
         return db;
     }
 
-    public synchronized SQLiteDatabase getReadableDatabase() {
+    public SQLiteDatabase getReadableDatabase() {
         if (readOnMainThread != AccessThreadConstraint.NONE) {
-            if (Looper.getMainLooper().getThread() == Thread.currentThread()) {
+            if (mainThread == Thread.currentThread()) {
                 if (readOnMainThread == AccessThreadConstraint.FATAL) {
                     throw new DatabaseAccessOnMainThreadException("Reading things must run in background");
                 } else {
@@ -153,11 +583,133 @@ public class OrmaConnection {
                 }
             }
         }
+        ensureMigrated();
+        return db;
+    }
+
+    /**
+     * Runs the migration only once, or waits for the background migration. Once it is completed, this is just a
+     * volatile read.
+     */
+    void ensureMigrated() {
         if (!migrationCompleted) {
+            if (backgroundMigrationLatch != null) {
+                awaitBackgroundMigration(backgroundMigrationLatch);
+            } else {
+                synchronized (this) {
+                    if (!migrationCompleted) {
+                        runMigration();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the migration has finished and the database is ready
+     */
+    public boolean isMigrationCompleted() {
+        return migrationCompleted;
+    }
+
+    void startBackgroundMigration() {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runMigration();
+                } catch (Throwable e) {
+                    Log.e(TAG, "migration failed", e);
+                    backgroundMigrationError = e;
+                } finally {
+                    backgroundMigrationLatch.countDown();
+                }
+            }
+        }, "Orma-Migration");
+        thread.start();
+    }
+
+    void awaitBackgroundMigration(@NonNull CountDownLatch latch) {
+        try {
+            if (migrationTimeoutMillis >= 0) {
+                if (!latch.await(migrationTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new MigrationTimeoutException(
+                            "The migration did not finish in " + migrationTimeoutMillis + "ms");
+                }
+            } else {
+                latch.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrmaException("Interrupted while waiting for the migration", e);
+        }
+
+        Throwable error = backgroundMigrationError;
+        if (error != null) {
+            throw new OrmaException("The migration failed", error);
+        }
+    }
+
+    void runMigration() {
+        long t0 = System.currentTimeMillis();
+        if (migrationListener != null) {
+            migrationListener.onMigrationStarted();
+        }
+
+        try {
             onMigrate(db);
-            migrationCompleted = true;
+        } catch (Throwable e) {
+            if (migrationListener != null) {
+                migrationListener.onMigrationFailed(e, System.currentTimeMillis() - t0);
+            }
+            throw e;
         }
-        return db;
+        migrationCompleted = true;
+
+        if (migrationListener != null) {
+            migrationListener.onMigrationFinished(System.currentTimeMillis() - t0);
+        }
+    }
+
+    /**
+     * @return A read-only database from the read connection pool, or {@link #getReadableDatabase()} if the pool is
+     * disabled or the current thread is in a transaction
+     */
+    public SQLiteDatabase getReadOnlyDatabase() {
+        SQLiteDatabase db = getReadableDatabase();
+        if (readConnectionPoolSize == 0 || db.inTransaction()) {
+            return db;
+        }
+        return getReadConnectionPool().acquire();
+    }
+
+    /**
+     * Closes the database and the read-only connections of the pool. The connection must not be used after that.
+     */
+    public synchronized void close() {
+        ReadConnectionPool pool = readConnectionPool;
+        if (pool != null) {
+            readConnectionPool = null;
+            pool.close();
+        }
+        statementCache.evictAll();
+        db.close();
+    }
+
+    @NonNull
+    ReadConnectionPool getReadConnectionPool() {
+        ReadConnectionPool pool = readConnectionPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = readConnectionPool;
+                if (pool == null) {
+                    assert path != null;
+                    pool = new ReadConnectionPool(path, readConnectionPoolSize, getSqlCacheSize());
+                    readConnectionPool = pool;
+                }
+            }
+        }
+        return pool;
     }
 
     @NonNull
@@ -182,45 +734,236 @@ public class OrmaConnection {
         return createdModel;
     }
 
-    public int update(Schema<?> schema, ContentValues values, String whereClause, String[] whereArgs) {
+    public int update(Schema<?> schema, ContentValues values, String whereClause, Object[] whereArgs) {
+        if (values.size() == 0) {
+            // as SQLiteDatabase#update() does
+            throw new IllegalArgumentException("Empty values");
+        }
         SQLiteDatabase db = getWritableDatabase();
-        return db.update(schema.getEscapedTableName(), values, whereClause, whereArgs);
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("UPDATE ");
+        sql.append(schema.getEscapedTableName());
+        sql.append(" SET ");
+
+        int valuesSize = values.size();
+        Object[] bindArgs = new Object[valuesSize + (whereArgs != null ? whereArgs.length : 0)];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : values.valueSet()) {
+            if (i != 0) {
+                sql.append(',');
+            }
+            sql.append(entry.getKey());
+            sql.append(" = ?");
+            bindArgs[i++] = entry.getValue();
+        }
+        if (whereArgs != null) {
+            System.arraycopy(whereArgs, 0, bindArgs, valuesSize, whereArgs.length);
+        }
+        if (!TextUtils.isEmpty(whereClause)) {
+            sql.append(" WHERE ");
+            sql.append(whereClause);
+        }
+
+        String s = sql.toString();
+        trace(s, bindArgs);
+        SQLiteStatement statement = statementCache.acquire(db, s);
+        try {
+            bindArgs(statement, bindArgs);
+            long t0 = System.nanoTime();
+            int count = statement.executeUpdateDelete();
+            onQueryExecuted(s, bindArgs, t0, count);
+            return count;
+        } finally {
+            statementCache.release(s, statement);
+            onTableChanged(schema, true);
+        }
+    }
+
+    /**
+     * Updates all the columns of {@code models} by their primary keys in a single transaction,
+     * compiling {@link Schema#getUpdateStatement()} only once.
+     *
+     * @return The total number of updated rows
+     */
+    public <T> int updateAll(@NonNull Schema<T> schema, @NonNull Iterable<T> models) {
+        SQLiteDatabase db = getWritableDatabase();
+        String sql = schema.getUpdateStatement();
+        int count = 0;
+
+        trace("begin transaction", null);
+        beginTransaction(db, true);
+        boolean successful = false;
+        try {
+            SQLiteStatement statement = statementCache.acquire(db, sql);
+            try {
+                for (T model : models) {
+                    Object[] args = (trace || isQueryReported()) ? schema.convertToArgs(this, model, false) : null;
+                    if (trace) {
+                        trace(sql, args);
+                    }
+                    schema.bindArgs(this, statement, model, false);
+                    long t0 = System.nanoTime();
+                    int updated = statement.executeUpdateDelete();
+                    onQueryExecuted(sql, args, t0, updated);
+                    count += updated;
+                }
+            } finally {
+                statementCache.release(sql, statement);
+            }
+            db.setTransactionSuccessful();
+            successful = true;
+        } finally {
+            onTableChanged(schema, true);
+            endTransaction(db, successful);
+            trace("end transaction", null);
+        }
+        return count;
+    }
+
+    /**
+     * Binds args in their own types, e.g. {@link Long} with {@link SQLiteProgram#bindLong(int, long)}.
+     *
+     * @param program  A statement or a query
+     * @param bindArgs Bind args, or {@code null}
+     */
+    static void bindArgs(@NonNull SQLiteProgram program, @Nullable Object[] bindArgs) {
+        if (bindArgs == null) {
+            return;
+        }
+        for (int i = 0; i < bindArgs.length; i++) {
+            DatabaseUtils.bindObjectToProgram(program, i + 1, bindArgs[i]);
+        }
     }
 
     @NonNull
-    public Cursor rawQuery(@NonNull String sql, String... bindArgs) {
+    public Cursor rawQuery(@NonNull String sql, final Object... bindArgs) {
         trace(sql, bindArgs);
-        SQLiteDatabase db = getReadableDatabase();
-        return db.rawQuery(sql, bindArgs);
+        if (!isQueryMonitored()) {
+            return rawQueryInternal(sql, bindArgs);
+        }
+        long t0 = System.nanoTime();
+        Cursor cursor = rawQueryInternal(sql, bindArgs);
+        if (isQueryReported()) {
+            // a cursor runs the query lazily; getCount() runs it to measure the elapsed time
+            onQueryExecuted(sql, bindArgs, t0, cursor.getCount());
+        } else {
+            // metrics only; walking the whole result set would undo lazy iteration
+            onQueryExecuted(sql, bindArgs, t0, -1);
+        }
+        return cursor;
+    }
+
+    private Cursor rawQueryInternal(@NonNull String sql, final Object[] bindArgs) {
+        SQLiteDatabase db = getReadOnlyDatabase();
+        if (bindArgs == null || bindArgs.length == 0) {
+            return db.rawQuery(sql, null);
+        }
+        // SQLiteDatabase#rawQuery() binds all the args as strings
+        return db.rawQueryWithFactory(new SQLiteDatabase.CursorFactory() {
+            @Override
+            public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver masterQuery, String editTable,
+                    SQLiteQuery query) {
+                bindArgs(query, bindArgs);
+                return new SQLiteCursor(masterQuery, editTable, query);
+            }
+        }, sql, null, null);
     }
 
-    public long rawQueryForLong(@NonNull String sql, @NonNull String... bindArgs) {
+    public long rawQueryForLong(@NonNull String sql, @Nullable Object... bindArgs) {
         trace(sql, bindArgs);
-        SQLiteDatabase db = getReadableDatabase();
-        return DatabaseUtils.longForQuery(db, sql, bindArgs);
+        SQLiteDatabase db = getReadOnlyDatabase();
+        if (db != this.db) {
+            // the statement cache is for the writer; read-only databases have their own SQL cache
+            SQLiteStatement statement = db.compileStatement(sql);
+            try {
+                bindArgs(statement, bindArgs);
+                long t0 = System.nanoTime();
+                long value = statement.simpleQueryForLong();
+                onQueryExecuted(sql, bindArgs, t0, 1);
+                return value;
+            } finally {
+                statement.close();
+            }
+        }
+        SQLiteStatement statement = statementCache.acquire(db, sql);
+        try {
+            bindArgs(statement, bindArgs);
+            long t0 = System.nanoTime();
+            long value = statement.simpleQueryForLong();
+            onQueryExecuted(sql, bindArgs, t0, 1);
+            return value;
+        } finally {
+            statementCache.release(sql, statement);
+        }
     }
 
-    public Cursor query(Schema<?> schema, String[] columns, String whereClause, String[] bindArgs,
+    public Cursor query(Schema<?> schema, String[] columns, String whereClause, Object[] bindArgs,
             String groupBy, String having, String orderBy, String limit) {
         String sql = SQLiteQueryBuilder.buildQueryString(
                 false, schema.getSelectFromTableClause(), columns, whereClause, groupBy, having, orderBy, limit);
         return rawQuery(sql, bindArgs);
     }
 
-    public int count(Schema<?> schema, String whereClause, String[] whereArgs) {
+    public int count(Schema<?> schema, String whereClause, Object[] whereArgs) {
         String sql = SQLiteQueryBuilder.buildQueryString(
                 false, schema.getSelectFromTableClause(), countSelections, whereClause, null, null, null, null);
-        return (int) rawQueryForLong(sql, whereArgs);
+        if (!countCache.isEnabled()) {
+            return (int) rawQueryForLong(sql, whereArgs);
+        }
+
+        String key = CountCache.buildKey(sql, whereArgs);
+        Integer cachedCount = countCache.get(key);
+        if (cachedCount != null) {
+            return cachedCount;
+        }
+        int generation = countCache.generation();
+        int count = (int) rawQueryForLong(sql, whereArgs);
+        if (!db.inTransaction()) {
+            countCache.put(key, getDependentTableNames(schema), count, generation);
+        }
+        return count;
     }
 
-    public <T> T querySingle(Schema<T> schema, String[] columns, String whereClause, String[] whereArgs, String groupBy,
+    /**
+     * @return {@code true} if any row matches, which is checked by {@code SELECT EXISTS (... LIMIT 1)} instead of
+     * counting all the rows
+     */
+    public boolean exists(Schema<?> schema, String whereClause, Object[] whereArgs) {
+        return rawQueryForLong(buildExistsQuery(schema, whereClause), whereArgs) != 0;
+    }
+
+    static String buildExistsQuery(Schema<?> schema, String whereClause) {
+        return "SELECT EXISTS (" + SQLiteQueryBuilder.buildQueryString(
+                false, schema.getSelectFromTableClause(), existsSelections, whereClause, null, null, null, "1") + ")";
+    }
+
+    /**
+     * Queries a model. A query that is just an equality of the primary key, e.g. by {@code idEq()}, is served from
+     * the model cache if it is enabled.
+     */
+    public <T> T querySingle(Schema<T> schema, String[] columns, String whereClause, Object[] whereArgs, String groupBy,
             String having, String orderBy, long offset) {
+        boolean cacheable = modelCache.isEnabled() && columns == schema.getDefaultResultColumns();
+        if (cacheable && offset == 0 && groupBy == null && having == null
+                && isPrimaryKeyEquality(schema, whereClause, whereArgs)) {
+            T cachedModel = modelCache.get(schema, whereArgs[0]);
+            if (cachedModel != null) {
+                return cachedModel;
+            }
+        }
+
+        int generation = modelCache.generation();
         SQLiteCursor cursor = (SQLiteCursor) query(schema, columns, whereClause, whereArgs, groupBy, having, orderBy,
                 offset + ",1");
 
         try {
             if (cursor.moveToFirst()) {
-                return schema.newModelFromCursor(this, cursor, 0);
+                T model = schema.newModelFromCursor(this, cursor, 0);
+                if (cacheable) {
+                    cacheModel(schema, model, generation);
+                }
+                return model;
             } else {
                 return null;
             }
@@ -229,33 +972,132 @@ public class OrmaConnection {
         }
     }
 
-    public int delete(@NonNull Schema<?> schema, @Nullable String whereClause, @Nullable String[] whereArgs) {
+    /**
+     * @return {@code true} if {@code whereClause} is {@code "pk = ?"}, optionally parenthesized or qualified
+     */
+    static boolean isPrimaryKeyEquality(Schema<?> schema, @Nullable String whereClause, @Nullable Object[] whereArgs) {
+        if (whereClause == null || whereArgs == null || whereArgs.length != 1) {
+            return false;
+        }
+        String condition = whereClause;
+        if (condition.startsWith("(") && condition.endsWith(")")) {
+            condition = condition.substring(1, condition.length() - 1);
+        }
+        ColumnDef<?, ?> primaryKey = schema.getPrimaryKey();
+        return condition.equals(primaryKey.getEscapedName() + " = ?")
+                || condition.equals(primaryKey.getFullyQualifiedName() + " = ?");
+    }
+
+    public int delete(@NonNull Schema<?> schema, @Nullable String whereClause, @Nullable Object[] whereArgs) {
         SQLiteDatabase db = getWritableDatabase();
 
         String sql = "DELETE FROM " + schema.getEscapedTableName()
                 + (!TextUtils.isEmpty(whereClause) ? " WHERE " + whereClause : "");
         trace(sql, whereArgs);
-        SQLiteStatement statement = db.compileStatement(sql);
-        statement.bindAllArgsAsStrings(whereArgs);
+        SQLiteStatement statement = statementCache.acquire(db, sql);
+        try {
+            bindArgs(statement, whereArgs);
+            long t0 = System.nanoTime();
+            int count = statement.executeUpdateDelete();
+            onQueryExecuted(sql, whereArgs, t0, count);
+            return count;
+        } finally {
+            statementCache.release(sql, statement);
+            onTableChanged(schema, true);
+        }
+    }
+
+    /**
+     * Deletes rows by their primary keys in a single transaction. The keys are split into
+     * {@code DELETE ... WHERE primaryKey IN (?, ...)} statements whose bind args are kept under
+     * {@code SQLITE_MAX_VARIABLE_NUMBER}, and a statement is compiled only once for each chunk size.
+     *
+     * @param schema      The schema to delete from
+     * @param primaryKeys Serialized primary keys
+     * @return The total number of deleted rows
+     */
+    public int deleteByPrimaryKeys(@NonNull Schema<?> schema, @NonNull Collection<?> primaryKeys) {
+        if (primaryKeys.isEmpty()) {
+            return 0;
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        String sqlPrefix = "DELETE FROM " + schema.getEscapedTableName()
+                + " WHERE " + schema.getPrimaryKey().getEscapedName() + " IN (";
+        Iterator<?> iterator = primaryKeys.iterator();
+        int remaining = primaryKeys.size();
+        int count = 0;
+
+        trace("begin transaction", null);
+        beginTransaction(db, true);
+        boolean successful = false;
+        String sql = null;
+        SQLiteStatement statement = null;
+        Object[] bindArgs = null;
         try {
-            return statement.executeUpdateDelete();
+            while (remaining > 0) {
+                int chunkSize = Math.min(remaining, Inserter.MAX_VARIABLE_NUMBER);
+                if (bindArgs == null || bindArgs.length != chunkSize) {
+                    // only the last chunk can have another size
+                    if (statement != null) {
+                        statementCache.release(sql, statement);
+                        statement = null;
+                    }
+                    sql = buildInClause(sqlPrefix, chunkSize);
+                    statement = statementCache.acquire(db, sql);
+                    bindArgs = new Object[chunkSize];
+                }
+                for (int i = 0; i < chunkSize; i++) {
+                    bindArgs[i] = OrmaConditionBase.normalizeBindArg(iterator.next());
+                }
+                trace(sql, bindArgs);
+                bindArgs(statement, bindArgs);
+                long t0 = System.nanoTime();
+                int deleted = statement.executeUpdateDelete();
+                onQueryExecuted(sql, bindArgs, t0, deleted);
+                count += deleted;
+                remaining -= chunkSize;
+            }
+            db.setTransactionSuccessful();
+            successful = true;
         } finally {
-            statement.close();
+            if (statement != null) {
+                statementCache.release(sql, statement);
+            }
+            onTableChanged(schema, true);
+            endTransaction(db, successful);
+            trace("end transaction", null);
+        }
+        return count;
+    }
+
+    static String buildInClause(String sqlPrefix, int numPlaceholders) {
+        StringBuilder sb = new StringBuilder(sqlPrefix.length() + numPlaceholders * 3);
+        sb.append(sqlPrefix);
+        for (int i = 0; i < numPlaceholders; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
         }
+        sb.append(')');
+        return sb.toString();
     }
 
     public void transactionNonExclusiveSync(@NonNull TransactionTask task) {
         SQLiteDatabase db = getReadableDatabase();
         trace("begin transaction (non exclusive)", null);
-        db.beginTransactionNonExclusive();
+        beginTransaction(db, false);
 
+        boolean successful = false;
         try {
             task.execute();
             db.setTransactionSuccessful();
+            successful = true;
         } catch (Exception e) {
             task.onError(e);
         } finally {
-            db.endTransaction();
+            endTransaction(db, successful);
             trace("end transaction (non exclusive)", null);
         }
     }
@@ -273,15 +1115,17 @@ public class OrmaConnection {
     public void transactionSync(@NonNull TransactionTask task) {
         SQLiteDatabase db = getWritableDatabase();
         trace("begin transaction", null);
-        db.beginTransaction();
+        beginTransaction(db, true);
 
+        boolean successful = false;
         try {
             task.execute();
             db.setTransactionSuccessful();
+            successful = true;
         } catch (Exception e) {
             task.onError(e);
         } finally {
-            db.endTransaction();
+            endTransaction(db, successful);
             trace("end transaction", null);
         }
     }
@@ -298,13 +1142,27 @@ public class OrmaConnection {
     public void execSQL(@NonNull String sql, @NonNull Object... bindArgs) {
         trace(sql, bindArgs);
         SQLiteDatabase db = getWritableDatabase();
-        db.execSQL(sql, bindArgs);
+        try {
+            long t0 = System.nanoTime();
+            db.execSQL(sql, bindArgs);
+            onQueryExecuted(sql, bindArgs, t0, -1);
+        } finally {
+            // the affected tables are unknown
+            modelCache.evictAll();
+            countCache.evictAll();
+            PendingTableChanges changes = getPendingTableChanges();
+            if (changes != null) {
+                changes.allTablesChanged = true;
+            }
+            notifyTableChanged(getAllTableNames());
+        }
     }
 
     protected void checkSchemas(List<Schema<?>> schemas) {
         if (tryParsingSql) {
             for (Schema<?> schema : schemas) {
-                SQLiteParserUtils.parse(schema.getCreateTableStatement());
+                // the results are memoized and reused by the migration
+                SQLiteParserCache.parseIntoCreateTableStatement(schema.getCreateTableStatement());
             }
         }
     }
@@ -314,6 +1172,135 @@ public class OrmaConnection {
         db.execSQL(sql);
     }
 
+    /**
+     * @return {@code true} if statements are timed for {@link QueryListener}, the slow query log or
+     * {@link QueryMetrics}
+     */
+    public boolean isQueryMonitored() {
+        return isQueryReported() || metrics != null;
+    }
+
+    /**
+     * Only {@link QueryListener} and the slow query log need bind args and row counts of statements, which cost
+     * allocations and full walks of cursors, while {@link QueryMetrics} needs only elapsed time.
+     *
+     * @return {@code true} if statements are reported with their bind args and row counts
+     */
+    public boolean isQueryReported() {
+        return queryListener != null || slowQueryThresholdNanos >= 0;
+    }
+
+    /**
+     * Reports an executed statement to {@link QueryListener}, the slow query log and {@link QueryMetrics}.
+     *
+     * @param sql        The executed statement
+     * @param bindArgs   Bind args of the statement
+     * @param startNanos {@link System#nanoTime()} before the statement is executed
+     * @param rowCount   The number of rows returned or affected, or {@code -1} if unknown
+     */
+    public void onQueryExecuted(@NonNull String sql, @Nullable Object[] bindArgs, long startNanos, int rowCount) {
+        if (!isQueryMonitored()) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (metrics != null) {
+            metrics.recordStatement(sql, elapsedNanos);
+        }
+        if (queryListener != null) {
+            queryListener.onQuery(sql, bindArgs, elapsedNanos, rowCount);
+        }
+        if (slowQueryThresholdNanos >= 0 && elapsedNanos >= slowQueryThresholdNanos) {
+            // the statement has been executed, and may be committed, so diagnostics must not fail it
+            try {
+                slowQueryListener.onSlowQuery(explainSlowQuery(sql, bindArgs, elapsedNanos));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "failed to report a slow query: " + sql, e);
+            }
+        }
+    }
+
+    @NonNull
+    SlowQuery explainSlowQuery(@NonNull String sql, @Nullable final Object[] bindArgs, long elapsedNanos) {
+        List<String> queryPlan = new ArrayList<>();
+        List<String> fullScannedTables = new ArrayList<>();
+        if (!isExplainable(sql)) {
+            return new SlowQuery(sql, bindArgs, elapsedNanos, queryPlan, fullScannedTables);
+        }
+
+        // not rawQuery() to avoid reporting EXPLAIN itself
+        Cursor cursor = getReadableDatabase().rawQueryWithFactory(new SQLiteDatabase.CursorFactory() {
+            @Override
+            public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver masterQuery, String editTable,
+                    SQLiteQuery query) {
+                bindArgs(query, bindArgs);
+                return new SQLiteCursor(masterQuery, editTable, query);
+            }
+        }, "EXPLAIN QUERY PLAN " + sql, null, null);
+        try {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            Set<String> indexedTables = getIndexedTableNames();
+            while (cursor.moveToNext()) {
+                String detail = cursor.getString(detailIndex);
+                queryPlan.add(detail);
+                String table = extractFullScannedTable(detail);
+                if (table != null && indexedTables.contains(table)) {
+                    fullScannedTables.add(table);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return new SlowQuery(sql, bindArgs, elapsedNanos, queryPlan, fullScannedTables);
+    }
+
+    static boolean isExplainable(@NonNull String sql) {
+        String s = sql.trim();
+        return s.regionMatches(true, 0, "SELECT", 0, 6)
+                || s.regionMatches(true, 0, "UPDATE", 0, 6)
+                || s.regionMatches(true, 0, "DELETE", 0, 6)
+                || s.regionMatches(true, 0, "INSERT", 0, 6);
+    }
+
+    /**
+     * @param detail A {@code detail} of {@code EXPLAIN QUERY PLAN}, e.g. {@code "SCAN TABLE `Book` AS b"} or
+     *               {@code "SCAN Book"} in SQLite 3.36.0 or later
+     * @return The name of the table scanned without any index, or {@code null}
+     */
+    @Nullable
+    static String extractFullScannedTable(@NonNull String detail) {
+        if (!detail.startsWith("SCAN ") || detail.contains(" USING ")) {
+            return null;
+        }
+        String rest = detail.substring("SCAN ".length());
+        if (rest.startsWith("TABLE ")) {
+            rest = rest.substring("TABLE ".length());
+        }
+        int end = rest.indexOf(' ');
+        String table = end == -1 ? rest : rest.substring(0, end);
+        if (table.startsWith("`") || table.startsWith("\"")) {
+            table = table.substring(1, table.length() - 1);
+        }
+        return table;
+    }
+
+    @NonNull
+    Set<String> getIndexedTableNames() {
+        Set<String> tableNames = indexedTableNames;
+        if (tableNames == null) {
+            tableNames = new HashSet<>();
+            for (Schema<?> schema : schemas) {
+                for (ColumnDef<?, ?> column : schema.getColumns()) {
+                    if (column.isIndexed()) {
+                        tableNames.add(schema.getTableName());
+                        break;
+                    }
+                }
+            }
+            indexedTableNames = tableNames;
+        }
+        return tableNames;
+    }
+
     protected void trace(@NonNull String sql, @Nullable Object[] bindArgs) {
         if (trace) {
             String prefix = "[" + Thread.currentThread().getName() + "] ";
@@ -344,6 +1331,20 @@ public class OrmaConnection {
         }
 
         setForeignKeyConstraintsEnabled(db, foreignKeys);
+
+        // cursor queries are prepared by the framework, which has its own per-connection statement cache
+        int sqlCacheSize = getSqlCacheSize();
+        if (sqlCacheSize > 0) {
+            db.setMaxSqlCacheSize(sqlCacheSize);
+        }
+    }
+
+    /**
+     * @return The size for {@link SQLiteDatabase#setMaxSqlCacheSize(int)}, or {@code 0} to keep the default
+     */
+    int getSqlCacheSize() {
+        int sqlCacheSize = Math.min(statementCache.maxSize(), SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+        return sqlCacheSize > DEFAULT_SQL_CACHE_SIZE ? sqlCacheSize : 0;
     }
 
     protected void onMigrate(SQLiteDatabase db) {
@@ -33,6 +33,8 @@ import android.support.annotation.Nullable;
 @SuppressWarnings("unchecked")
 public abstract class OrmaDatabaseBuilderBase<T extends OrmaDatabaseBuilderBase<?>> {
 
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
     @NonNull
     final Context context;
 
@@ -59,6 +61,31 @@ public abstract class OrmaDatabaseBuilderBase<T extends OrmaDatabaseBuilderBase<
 
     AccessThreadConstraint writeOnMainThread;
 
+    int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+
+    int readConnectionPoolSize = 0;
+
+    int modelCacheSize = 0;
+
+    int countCacheSize = 0;
+
+    @Nullable
+    QueryListener queryListener;
+
+    long slowQueryThresholdMillis = -1;
+
+    @NonNull
+    SlowQueryListener slowQueryListener = SlowQueryListener.LOGCAT;
+
+    boolean collectMetrics = false;
+
+    boolean migrateInBackground = false;
+
+    long migrationTimeoutMillis = -1;
+
+    @Nullable
+    MigrationListener migrationListener;
+
     public OrmaDatabaseBuilderBase(@NonNull Context context) {
         this.context = context.getApplicationContext();
         this.debug = extractDebuggable(context);
@@ -229,6 +256,146 @@ public abstract class OrmaDatabaseBuilderBase<T extends OrmaDatabaseBuilderBase<
         return (T) this;
     }
 
+    /**
+     * Sets the max number of compiled statements cached in {@link OrmaConnection}. The default is
+     * {@link #DEFAULT_STATEMENT_CACHE_SIZE}.
+     *
+     * @param statementCacheSize The max number of cached statements, or {@code 0} to disable the cache
+     * @return the receiver itself
+     */
+    public T statementCacheSize(@IntRange(from = 0) int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+        return (T) this;
+    }
+
+    /**
+     * Sets the number of read-only connections used by queries, which run in parallel with each other and with
+     * the writer. It works only with {@link #writeAheadLogging(boolean)} and a named database. Queries in a
+     * transaction always use the writer to see uncommitted changes. The default is {@code 0}, which disables the pool.
+     *
+     * @param readConnectionPoolSize The number of read-only connections, or {@code 0} to disable the pool
+     * @return the receiver itself
+     */
+    public T readConnectionPoolSize(@IntRange(from = 0) int readConnectionPoolSize) {
+        this.readConnectionPoolSize = readConnectionPoolSize;
+        return (T) this;
+    }
+
+    /**
+     * Sets the max number of models cached for each table in {@link OrmaConnection}, which are used by
+     * {@link SingleAssociation} instead of queries. Cached models of a table are invalidated by writes through Orma,
+     * but not by writes through {@link android.database.sqlite.SQLiteDatabase} directly.
+     * The default is {@code 0}, which disables the cache.
+     *
+     * @param modelCacheSize The max number of cached models per table, or {@code 0} to disable the cache
+     * @return the receiver itself
+     */
+    public T modelCacheSize(@IntRange(from = 0) int modelCacheSize) {
+        this.modelCacheSize = modelCacheSize;
+        return (T) this;
+    }
+
+    /**
+     * Sets the max number of {@code COUNT(*)} results cached in {@link OrmaConnection}, which are used by
+     * {@link Selector#count()} and adapters. Cached counts are invalidated by writes through Orma,
+     * but not by writes through {@link android.database.sqlite.SQLiteDatabase} directly.
+     * The default is {@code 0}, which disables the cache.
+     *
+     * @param countCacheSize The max number of cached counts, or {@code 0} to disable the cache
+     * @return the receiver itself
+     */
+    public T countCacheSize(@IntRange(from = 0) int countCacheSize) {
+        this.countCacheSize = countCacheSize;
+        return (T) this;
+    }
+
+    /**
+     * Sets a listener that receives every statement with its elapsed time and row count.
+     *
+     * @param queryListener A listener, or {@code null} to remove it
+     * @return the receiver itself
+     */
+    public T queryListener(@Nullable QueryListener queryListener) {
+        this.queryListener = queryListener;
+        return (T) this;
+    }
+
+    /**
+     * Enables the slow query log: statements slower than {@code slowQueryThresholdMillis} are explained by
+     * {@code EXPLAIN QUERY PLAN} and passed to {@link #slowQueryListener(SlowQueryListener)}, with the tables
+     * scanned without indexes. The default is {@code -1}, which disables the log.
+     *
+     * @param slowQueryThresholdMillis The threshold in milliseconds, or {@code -1} to disable the slow query log
+     * @return the receiver itself
+     */
+    public T slowQueryThresholdMillis(@IntRange(from = -1) long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+        return (T) this;
+    }
+
+    /**
+     * Sets a listener for the slow query log. The default is {@link SlowQueryListener#LOGCAT}.
+     *
+     * @param slowQueryListener A listener for slow queries
+     * @return the receiver itself
+     */
+    public T slowQueryListener(@NonNull SlowQueryListener slowQueryListener) {
+        this.slowQueryListener = slowQueryListener;
+        return (T) this;
+    }
+
+    /**
+     * Enables latency histograms of statements per table and per operation, transaction hold times and lock wait
+     * times, which are available from {@link OrmaConnection#getMetrics()}. The default is {@code false}.
+     * Metrics change neither how statements run nor how cursors are walked, so the latency of a query returning a
+     * cursor covers only its preparation.
+     *
+     * @param collectMetrics {@code true} to collect metrics
+     * @return the receiver itself
+     */
+    public T collectMetrics(boolean collectMetrics) {
+        this.collectMetrics = collectMetrics;
+        return (T) this;
+    }
+
+    /**
+     * If {@code true}, the migration starts on a background thread when the database is built, instead of on the first
+     * access of the database. Accesses during the migration wait for it to finish, up to
+     * {@link #migrationTimeoutMillis(long)}. The default is {@code false}.
+     *
+     * @param migrateInBackground {@code true} to start the migration on a background thread
+     * @return the receiver itself
+     */
+    public T migrateInBackground(boolean migrateInBackground) {
+        this.migrateInBackground = migrateInBackground;
+        return (T) this;
+    }
+
+    /**
+     * Sets how long an access of the database waits for the background migration before it throws
+     * {@link com.github.gfx.android.orma.exception.MigrationTimeoutException}. The default is {@code -1}, which waits
+     * until the migration finishes.
+     *
+     * @param migrationTimeoutMillis The timeout in milliseconds, or {@code -1} to wait forever
+     * @return the receiver itself
+     * @see #migrateInBackground(boolean)
+     */
+    public T migrationTimeoutMillis(@IntRange(from = -1) long migrationTimeoutMillis) {
+        this.migrationTimeoutMillis = migrationTimeoutMillis;
+        return (T) this;
+    }
+
+    /**
+     * Sets a listener for the start, the end, and the failure of the migration.
+     *
+     * @param migrationListener A listener, or {@code null} to remove it
+     * @return the receiver itself
+     */
+    public T migrationListener(@Nullable MigrationListener migrationListener) {
+        this.migrationListener = migrationListener;
+        return (T) this;
+    }
+
     @NonNull
     protected abstract String getSchemaHash();
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import com.github.gfx.android.orma.internal.OrmaConditionBase;
+
+import android.database.Cursor;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a frozen {@link Selector}, which keeps its SQL and bind args, created by {@link Selector#prepare()}.
+ * It is re-executable without building SQL, and bind args can be replaced by {@link #bindArgs(Object...)}.
+ *
+ * Instances are not thread-safe.
+ *
+ * @param <Model> An Orma model
+ */
+public class PreparedSelector<Model> {
+
+    final Selector<Model, ?> selector;
+
+    final OrmaConnection conn;
+
+    final String sql;
+
+    final String countSql;
+
+    final String existsSql;
+
+    final String valueSql;
+
+    @NonNull
+    Object[] bindArgs;
+
+    PreparedSelector(@NonNull Selector<Model, ?> selector, @NonNull String sql, @NonNull String countSql,
+            @NonNull String existsSql, @NonNull String valueSql, @NonNull Object[] bindArgs) {
+        this.selector = selector;
+        this.conn = selector.getConnection();
+        this.sql = sql;
+        this.countSql = countSql;
+        this.existsSql = existsSql;
+        this.valueSql = valueSql;
+        this.bindArgs = bindArgs;
+    }
+
+    /**
+     * Replaces all the bind args, in the same order as they are given to the selector.
+     *
+     * @param args New bind args
+     * @return the receiver itself
+     */
+    @NonNull
+    public PreparedSelector<Model> bindArgs(@NonNull Object... args) {
+        if (args.length != bindArgs.length) {
+            throw new IllegalArgumentException("Expected " + bindArgs.length + " bind args but " + args.length);
+        }
+        Object[] newBindArgs = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            newBindArgs[i] = OrmaConditionBase.normalizeBindArg(args[i]);
+        }
+        bindArgs = newBindArgs;
+        return this;
+    }
+
+    @NonNull
+    public String getSql() {
+        return sql;
+    }
+
+    @IntRange(from = 0)
+    public int count() {
+        return (int) conn.rawQueryForLong(countSql, bindArgs);
+    }
+
+    /**
+     * @see Selector#isEmpty()
+     */
+    public boolean isEmpty() {
+        return conn.rawQueryForLong(existsSql, bindArgs) == 0;
+    }
+
+    @NonNull
+    public Cursor execute() {
+        return conn.rawQuery(sql, bindArgs);
+    }
+
+    @NonNull
+    public List<Model> toList() {
+        List<Model> list = new ArrayList<>();
+        int generation = conn.getModelCache().generation();
+        Cursor cursor = execute();
+        try {
+            while (cursor.moveToNext()) {
+                list.add(selector.newModelFromCursor(cursor, generation));
+            }
+        } finally {
+            cursor.close();
+        }
+        selector.prefetchAssociations(list);
+        return list;
+    }
+
+    @Nullable
+    public Model valueOrNull() {
+        int generation = conn.getModelCache().generation();
+        Cursor cursor = conn.rawQuery(valueSql, bindArgs);
+        try {
+            if (cursor.moveToFirst()) {
+                return selector.newModelFromCursor(cursor, generation);
+            } else {
+                return null;
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * A row of a projection given by {@link Selector#project(ColumnDef[])}, which holds only the projected column values
+ * without creating models.
+ *
+ * @param <Model> An Orma model
+ */
+public class ProjectedRow<Model> {
+
+    final List<ColumnDef<Model, ?>> columns;
+
+    final Object[] values;
+
+    public ProjectedRow(@NonNull List<ColumnDef<Model, ?>> columns, @NonNull Object[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * @param column A projected column
+     * @param <T>    The type of the column
+     * @return The value of the column
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull ColumnDef<Model, T> column) {
+        for (int i = 0; i < values.length; i++) {
+            if (columns.get(i) == column) {
+                return (T) values[i];
+            }
+        }
+        throw new IllegalArgumentException("Not projected: " + column);
+    }
+
+    @NonNull
+    public List<ColumnDef<Model, ?>> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ProjectedRow{");
+        for (int i = 0; i < values.length; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append(columns.get(i).name);
+            sb.append('=');
+            sb.append(values[i]);
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+}
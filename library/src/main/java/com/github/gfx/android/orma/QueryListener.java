@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Receives every statement executed by {@link OrmaConnection}, set by
+ * {@link OrmaDatabaseBuilderBase#queryListener(QueryListener)}. It is called in the thread that executed the statement.
+ */
+public interface QueryListener {
+
+    /**
+     * @param sql          The executed statement
+     * @param bindArgs     Bind args, or {@code null} if it has none
+     * @param elapsedNanos Elapsed time to execute the statement, in nanoseconds
+     * @param rowCount     The number of rows returned by a query, or affected by {@code INSERT}, {@code UPDATE} or
+     *                     {@code DELETE}; {@code -1} if unknown
+     */
+    void onQuery(@NonNull String sql, @Nullable Object[] bindArgs, long elapsedNanos, int rowCount);
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency histograms of statements per table and per operation, and of transactions. Recording a statement does not
+ * allocate once its SQL is seen, because histograms are memoized by SQL.
+ */
+public class QueryMetrics {
+
+    public enum Operation {
+        SELECT,
+        INSERT,
+        UPDATE,
+        DELETE,
+        OTHER,
+    }
+
+    /**
+     * The max number of SQL strings memoized to find their histograms.
+     */
+    static final int MAX_MEMOIZED_SQL = 512;
+
+    final Map<String, StatementHistogram> histogramsBySql = new ConcurrentHashMap<>();
+
+    final Map<String, StatementHistogram> histogramsByKey = new ConcurrentHashMap<>();
+
+    final LatencyHistogram transactionHoldTimes = new LatencyHistogram();
+
+    final LatencyHistogram lockWaitTimes = new LatencyHistogram();
+
+    static class StatementHistogram extends LatencyHistogram {
+
+        @Nullable
+        final String tableName;
+
+        @NonNull
+        final Operation operation;
+
+        StatementHistogram(@Nullable String tableName, @NonNull Operation operation) {
+            this.tableName = tableName;
+            this.operation = operation;
+        }
+    }
+
+    public void recordStatement(@NonNull String sql, long elapsedNanos) {
+        StatementHistogram histogram = histogramsBySql.get(sql);
+        if (histogram == null) {
+            histogram = findHistogram(sql);
+            if (histogramsBySql.size() < MAX_MEMOIZED_SQL) {
+                histogramsBySql.put(sql, histogram);
+            }
+        }
+        histogram.record(elapsedNanos);
+    }
+
+    /**
+     * @param holdNanos The time from the beginning of the outermost transaction to its end
+     */
+    public void recordTransaction(long holdNanos) {
+        transactionHoldTimes.record(holdNanos);
+    }
+
+    /**
+     * @param waitNanos The time to wait for {@code BEGIN} to acquire the database lock
+     */
+    public void recordLockWait(long waitNanos) {
+        lockWaitTimes.record(waitNanos);
+    }
+
+    StatementHistogram findHistogram(String sql) {
+        Operation operation = parseOperation(sql);
+        String tableName = parseTableName(sql, operation);
+        String key = operation + " " + tableName;
+        StatementHistogram histogram = histogramsByKey.get(key);
+        if (histogram == null) {
+            synchronized (histogramsByKey) {
+                histogram = histogramsByKey.get(key);
+                if (histogram == null) {
+                    histogram = new StatementHistogram(tableName, operation);
+                    histogramsByKey.put(key, histogram);
+                }
+            }
+        }
+        return histogram;
+    }
+
+    @NonNull
+    static Operation parseOperation(@NonNull String sql) {
+        String s = sql.trim();
+        for (Operation operation : Operation.values()) {
+            String name = operation.name();
+            if (s.regionMatches(true, 0, name, 0, name.length())) {
+                return operation;
+            }
+        }
+        return Operation.OTHER;
+    }
+
+    /**
+     * Finds the main table of a statement, e.g. {@code Book} in {@code SELECT * FROM `Book` WHERE ...}.
+     *
+     * @return The table name, or {@code null} if not found
+     */
+    @Nullable
+    static String parseTableName(@NonNull String sql, @NonNull Operation operation) {
+        String keyword;
+        switch (operation) {
+            case SELECT:
+            case DELETE:
+                keyword = " FROM ";
+                break;
+            case INSERT:
+                keyword = " INTO ";
+                break;
+            case UPDATE:
+                keyword = "UPDATE ";
+                break;
+            default:
+                return null;
+        }
+        int start = indexOfIgnoreCase(sql, keyword);
+        if (start == -1) {
+            return null;
+        }
+        start += keyword.length();
+        while (start < sql.length() && sql.charAt(start) == ' ') {
+            start++;
+        }
+        if (start == sql.length()) {
+            return null;
+        }
+        char c = sql.charAt(start);
+        if (c == '`' || c == '"') {
+            int end = sql.indexOf(c, start + 1);
+            return end == -1 ? null : sql.substring(start + 1, end);
+        }
+        int end = start;
+        while (end < sql.length() && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end) == '_')) {
+            end++;
+        }
+        return end == start ? null : sql.substring(start, end);
+    }
+
+    static int indexOfIgnoreCase(String s, String keyword) {
+        for (int i = 0, last = s.length() - keyword.length(); i <= last; i++) {
+            if (s.regionMatches(true, i, keyword, 0, keyword.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void reset() {
+        for (StatementHistogram histogram : histogramsByKey.values()) {
+            histogram.reset();
+        }
+        transactionHoldTimes.reset();
+        lockWaitTimes.reset();
+    }
+
+    @NonNull
+    public Snapshot snapshot() {
+        List<StatementMetrics> statements = new ArrayList<>();
+        for (StatementHistogram histogram : histogramsByKey.values()) {
+            statements.add(new StatementMetrics(histogram.tableName, histogram.operation, histogram.snapshot()));
+        }
+        return new Snapshot(Collections.unmodifiableList(statements), transactionHoldTimes.snapshot(),
+                lockWaitTimes.snapshot());
+    }
+
+    public static class StatementMetrics {
+
+        /**
+         * The main table of statements, or {@code null} if unknown.
+         */
+        @Nullable
+        public final String tableName;
+
+        @NonNull
+        public final Operation operation;
+
+        @NonNull
+        public final LatencyHistogram.Snapshot latency;
+
+        StatementMetrics(@Nullable String tableName, @NonNull Operation operation,
+                @NonNull LatencyHistogram.Snapshot latency) {
+            this.tableName = tableName;
+            this.operation = operation;
+            this.latency = latency;
+        }
+
+        @Override
+        public String toString() {
+            return operation + " " + tableName + ": " + latency;
+        }
+    }
+
+    /**
+     * A copy of metrics, which is safe to keep and ship to telemetry.
+     */
+    public static class Snapshot {
+
+        @NonNull
+        public final List<StatementMetrics> statements;
+
+        @NonNull
+        public final LatencyHistogram.Snapshot transactionHoldTimes;
+
+        @NonNull
+        public final LatencyHistogram.Snapshot lockWaitTimes;
+
+        Snapshot(@NonNull List<StatementMetrics> statements, @NonNull LatencyHistogram.Snapshot transactionHoldTimes,
+                @NonNull LatencyHistogram.Snapshot lockWaitTimes) {
+            this.statements = statements;
+            this.transactionHoldTimes = transactionHoldTimes;
+            this.lockWaitTimes = lockWaitTimes;
+        }
+
+        /**
+         * @return Metrics of statements for the table and the operation, or {@code null} if none is recorded
+         */
+        @Nullable
+        public StatementMetrics get(@Nullable String tableName, @NonNull Operation operation) {
+            for (StatementMetrics metrics : statements) {
+                if (metrics.operation == operation
+                        && (tableName == null ? metrics.tableName == null : tableName.equals(metrics.tableName))) {
+                    return metrics;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (StatementMetrics metrics : statements) {
+                sb.append(metrics);
+                sb.append('\n');
+            }
+            sb.append("transaction: ");
+            sb.append(transactionHoldTimes);
+            sb.append("\nlock wait: ");
+            sb.append(lockWaitTimes);
+            return sb.toString();
+        }
+    }
+}
@@ -48,6 +48,7 @@ public abstract class Relation<Model, R extends Relation<Model, ?>> extends Orma
 
     public Relation(@NonNull Relation<Model, ?> relation) {
         super(relation);
+        orderSpecs.addAll(relation.orderSpecs);
     }
 
     @SuppressWarnings("unchecked")
@@ -240,16 +241,30 @@ public abstract class Relation<Model, R extends Relation<Model, ?>> extends Orma
      * Equivalent to {@code relation.inserter(OnConflict.REPLACE, false)}.
      *
      * @return An {@code Inserter} instance to upsert rows.
+     * @deprecated {@code INSERT OR REPLACE} deletes and re-inserts existing rows. Use {@link #prepareUpsert()} to
+     * update them in place.
      */
+    @Deprecated
     @NonNull
     public Inserter<Model> upserter() {
         return inserter(OnConflict.REPLACE, false);
     }
 
+    /**
+     * Unlike {@link #upserter()}, it updates existing rows instead of deleting and re-inserting them.
+     * The model must have a {@code @PrimaryKey}.
+     *
+     * @return An {@link Upserter} instance to upsert rows.
+     */
+    @NonNull
+    public Upserter<Model> prepareUpsert() {
+        return new Upserter<>(conn, schema);
+    }
+
     // Iterator<Model>
 
     @Override
     public Iterator<Model> iterator() {
-        return selector().iterator();
+        return selector().keysetPagination(true).iterator();
     }
 }
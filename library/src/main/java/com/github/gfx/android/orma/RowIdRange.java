@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+/**
+ * A range of row ids given by {@link Inserter#executeAll(Iterable)}.
+ *
+ * SQLite gives consecutive row ids to rows inserted by a multi-row {@code INSERT} statement only if it assigns them,
+ * so {@link #first} is computed from the last row id and the number of rows only if the primary key is an auto value
+ * that is not given by models, i.e. {@code withoutAutoId} is {@code true}, and the
+ * {@link com.github.gfx.android.orma.annotation.OnConflict} algorithm is neither {@code IGNORE} nor {@code REPLACE},
+ * which leave gaps. Otherwise {@link #first} is unknown.
+ */
+public class RowIdRange {
+
+    public static final RowIdRange EMPTY = new RowIdRange(-1, -1);
+
+    /**
+     * The row id of the first inserted row, or {@code -1} if nothing is inserted or it is unknown.
+     *
+     * @see #isFirstKnown()
+     */
+    public final long first;
+
+    /**
+     * The row id of the last inserted row, or {@code -1} if nothing is inserted.
+     */
+    public final long last;
+
+    public RowIdRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    public boolean isEmpty() {
+        return last == -1;
+    }
+
+    /**
+     * @return {@code true} if {@link #first} is the row id of the first inserted row
+     */
+    public boolean isFirstKnown() {
+        return first != -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RowIdRange)) {
+            return false;
+        }
+        RowIdRange that = (RowIdRange) o;
+        return first == that.first && last == that.last;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (first ^ (first >>> 32)) * 31 + (int) (last ^ (last >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "RowIdRange{" + first + ".." + last + "}";
+    }
+}
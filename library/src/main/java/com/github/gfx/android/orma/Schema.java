@@ -69,6 +69,33 @@ public interface Schema<Model> extends MigrationSchema {
     @NonNull
     String getInsertStatement(@OnConflict int onConflictAlgorithm, boolean withoutAutoId);
 
+    /**
+     * @param onConflictAlgorithm {@link OnConflict} algorithm
+     * @param withoutAutoId       If {@code true}, the primary key with {@link PrimaryKey#auto()} is omitted in the
+     *                            {@code INSERT} statement.
+     * @param numRows             The number of rows in the {@code VALUES} clause
+     * @return A multi-row {@code INSERT} statement, e.g. {@code INSERT INTO t (a,b) VALUES (?,?),(?,?)}
+     */
+    @NonNull
+    String getInsertStatement(@OnConflict int onConflictAlgorithm, boolean withoutAutoId, int numRows);
+
+    /**
+     * @return {@code UPDATE table SET column = ?, ... WHERE primaryKey = ?}, to be bound by
+     * {@link #bindArgs(OrmaConnection, SQLiteStatement, Object, boolean)} with {@code withoutAutoId = false}
+     * @throws UnsupportedOperationException if the model has no {@code @PrimaryKey}
+     */
+    @NonNull
+    String getUpdateStatement();
+
+    /**
+     * @return {@code INSERT INTO table (...) VALUES (...) ON CONFLICT (primaryKey) DO UPDATE SET ...}, to be bound by
+     * {@link #bindArgs(OrmaConnection, SQLiteStatement, Object, boolean)} with {@code withoutAutoId = false}.
+     * It requires SQLite 3.24.0 or later; see {@link OrmaConnection#isUpsertSupported()}.
+     * @throws UnsupportedOperationException if the model has no {@code @PrimaryKey}
+     */
+    @NonNull
+    String getUpsertStatement();
+
     Object[] convertToArgs(@NonNull OrmaConnection conn, @NonNull Model mode, boolean withoutAutoId);
 
     /**
@@ -81,6 +108,31 @@ public interface Schema<Model> extends MigrationSchema {
     void bindArgs(@NonNull OrmaConnection conn, @NonNull SQLiteStatement statement, @NonNull Model model,
             boolean withoutAutoId);
 
+    /**
+     * Binds a row of a multi-row {@code INSERT} statement.
+     *
+     * @param conn          Used to retrieve instances that depends on a connection
+     * @param statement     What to bind columns
+     * @param model         The target model
+     * @param withoutAutoId If {@code true}, the primary key with {@link PrimaryKey#auto()} is omitted in the {@code INSERT}
+     *                      statement.
+     * @param offset        The number of bind args preceding the row
+     */
+    void bindArgs(@NonNull OrmaConnection conn, @NonNull SQLiteStatement statement, @NonNull Model model,
+            boolean withoutAutoId, int offset);
+
     @NonNull
     Model newModelFromCursor(@NonNull OrmaConnection conn, @NonNull Cursor cursor, int offset);
+
+    /**
+     * Creates a partial model that has only the specified columns. Other fields are left as default values.
+     *
+     * @param conn    Used to retrieve instances that depends on a connection
+     * @param cursor  A cursor that has exactly {@code columns}
+     * @param columns The columns to populate, which must not include direct associations
+     * @return A partial model
+     */
+    @NonNull
+    Model newModelFromCursor(@NonNull OrmaConnection conn, @NonNull Cursor cursor,
+            @NonNull List<ColumnDef<Model, ?>> columns);
 }
@@ -18,8 +18,10 @@ package com.github.gfx.android.orma;
 
 import com.github.gfx.android.orma.exception.InvalidStatementException;
 import com.github.gfx.android.orma.exception.NoValueException;
+import com.github.gfx.android.orma.internal.ModelCache;
 import com.github.gfx.android.orma.internal.OrmaConditionBase;
 import com.github.gfx.android.orma.internal.OrmaIterator;
+import com.github.gfx.android.orma.internal.OrmaKeysetIterator;
 
 import android.database.Cursor;
 import android.database.sqlite.SQLiteQueryBuilder;
@@ -28,19 +30,29 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
 import rx.Single;
 import rx.SingleSubscriber;
 import rx.Subscriber;
 import rx.functions.Action1;
+import rx.functions.Func1;
 import rx.functions.FuncN;
+import rx.schedulers.Schedulers;
 
 public abstract class Selector<Model, S extends Selector<Model, ?>>
         extends OrmaConditionBase<Model, S> implements Iterable<Model>, Cloneable {
 
+    /**
+     * The default debounce time of {@link #observe()}.
+     */
+    public static final long DEFAULT_OBSERVE_DEBOUNCE_MILLIS = 50;
+
     @Nullable
     protected String groupBy;
 
@@ -56,6 +68,33 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
 
     protected long page = -1;
 
+    /**
+     * Ordering terms given as {@link OrderSpec}, which are used as the keys of keyset pagination.
+     */
+    protected final ArrayList<OrderSpec<Model>> orderSpecs = new ArrayList<>();
+
+    /**
+     * {@code true} if any ordering term is given as a raw string, which prevents keyset pagination.
+     */
+    protected boolean hasRawOrderingTerms = false;
+
+    protected boolean keysetPagination = false;
+
+    protected int iterationBatchSize = OrmaIterator.DEFAULT_BATCH_SIZE;
+
+    protected boolean countInIteration = true;
+
+    /**
+     * Columns given by {@link #project(ColumnDef[])}, or {@code null} to select all the columns.
+     */
+    @Nullable
+    protected List<ColumnDef<Model, ?>> projection;
+
+    /**
+     * Columns given by {@link #prefetch(ColumnDef)}.
+     */
+    protected final ArrayList<ColumnDef<Model, ?>> prefetchColumns = new ArrayList<>();
+
     public Selector(@NonNull OrmaConnection conn, @NonNull Schema<Model> schema) {
         super(conn, schema);
     }
@@ -65,10 +104,25 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
         if (condition instanceof Relation) {
             @SuppressWarnings("unchecked")
             Relation<Model, ?> relation = (Relation<Model, ?>) condition;
-            CharSequence orderByTerm = relation.buildOrderingTerms();
-            if (orderByTerm != null) {
-                orderBy(orderByTerm);
+            for (OrderSpec<Model> orderSpec : relation.orderSpecs) {
+                orderBy(orderSpec);
             }
+        } else if (condition instanceof Selector) {
+            @SuppressWarnings("unchecked")
+            Selector<Model, ?> selector = (Selector<Model, ?>) condition;
+            groupBy = selector.groupBy;
+            having = selector.having;
+            orderBy = selector.orderBy;
+            orderSpecs.addAll(selector.orderSpecs);
+            hasRawOrderingTerms = selector.hasRawOrderingTerms;
+            limit = selector.limit;
+            offset = selector.offset;
+            page = selector.page;
+            keysetPagination = selector.keysetPagination;
+            iterationBatchSize = selector.iterationBatchSize;
+            countInIteration = selector.countInIteration;
+            projection = selector.projection;
+            prefetchColumns.addAll(selector.prefetchColumns);
         }
     }
 
@@ -90,12 +144,24 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
 
     @SuppressWarnings("unchecked")
     public S orderBy(@NonNull CharSequence orderByTerm) {
+        hasRawOrderingTerms = true;
+        appendOrderingTerm(orderByTerm);
+        return (S) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public S orderBy(@NonNull OrderSpec<Model> orderSpec) {
+        orderSpecs.add(orderSpec);
+        appendOrderingTerm(orderSpec.toString());
+        return (S) this;
+    }
+
+    private void appendOrderingTerm(@NonNull CharSequence orderByTerm) {
         if (orderBy == null) {
             orderBy = orderByTerm.toString();
         } else {
             orderBy += ", " + orderByTerm;
         }
-        return (S) this;
     }
 
     @SuppressWarnings("unchecked")
@@ -122,6 +188,91 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
         return (S) this;
     }
 
+    /**
+     * Controls how {@link #iterator()} pages the result set. If {@code true}, each batch is fetched with
+     * {@code WHERE (keys) > (last seen keys)} on the {@link OrderSpec} columns and the primary key, instead of
+     * {@code LIMIT} and {@code OFFSET}, and no {@code count()} query is issued. It costs {@code O(n)} in total
+     * while {@code OFFSET} costs {@code O(n^2)}.
+     *
+     * Keyset pagination silently falls back to {@code OFFSET} if the selector has raw ordering terms,
+     * {@code groupBy()}, {@code limit()}, or nullable ordering columns. The default is {@code false}.
+     *
+     * @param keysetPagination {@code true} to enable keyset pagination in {@link #iterator()}
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unchecked")
+    public S keysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+        return (S) this;
+    }
+
+    /**
+     * @param iterationBatchSize The number of rows fetched at once in {@link #iterator()}
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unchecked")
+    public S iterationBatchSize(@IntRange(from = 1) int iterationBatchSize) {
+        this.iterationBatchSize = iterationBatchSize;
+        return (S) this;
+    }
+
+    /**
+     * Controls whether {@link #iterator()} runs {@code COUNT(*)} before iteration. If {@code false}, the end of
+     * the result set is detected by a batch shorter than {@link #iterationBatchSize(int)}, which costs an extra
+     * empty batch query at most. The default is {@code true}.
+     *
+     * @param countInIteration {@code false} to skip {@code COUNT(*)} in {@link #iterator()}
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unchecked")
+    public S countInIteration(boolean countInIteration) {
+        this.countInIteration = countInIteration;
+        return (S) this;
+    }
+
+    /**
+     * Selects only the specified columns. Models created by the selector are partial, whose fields other than
+     * {@code columns} are left as default values. Direct associations are not supported.
+     *
+     * @param columns Columns to select, e.g. {@code Todo_Schema.id, Todo_Schema.title}
+     * @return the receiver itself
+     * @see #toRows()
+     */
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    public final S project(@NonNull ColumnDef<Model, ?>... columns) {
+        this.projection = Arrays.asList(columns);
+        return (S) this;
+    }
+
+    /**
+     * Loads the models of the {@link SingleAssociation} column in {@link #toList()} with {@code WHERE id IN (...)}
+     * queries, so that {@link SingleAssociation#value()} does not issue a query for each model.
+     *
+     * @param column A {@link SingleAssociation} column, e.g. {@code Book_Schema.publisher}
+     * @return the receiver itself
+     */
+    @SuppressWarnings("unchecked")
+    public S prefetch(@NonNull ColumnDef<Model, ? extends SingleAssociation<?>> column) {
+        prefetchColumns.add(column);
+        return (S) this;
+    }
+
+    /**
+     * @return Columns for {@code SELECT}, which reflect {@link #project(ColumnDef[])}
+     */
+    @NonNull
+    public String[] getResultColumns() {
+        if (projection == null) {
+            return schema.getDefaultResultColumns();
+        }
+        String[] columns = new String[projection.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = projection.get(i).getFullyQualifiedName();
+        }
+        return columns;
+    }
+
     @Nullable
     private String getLimitClause() {
         if (page != -1 && offset != -1) {
@@ -165,8 +316,11 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
         });
     }
 
+    /**
+     * @return {@code true} if no row matches, which is checked without counting all the rows
+     */
     public boolean isEmpty() {
-        return count() == 0;
+        return !conn.exists(schema, getWhereClause(), getBindArgs());
     }
 
     @Nullable
@@ -185,8 +339,22 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
 
     @Nullable
     public Model getOrNull(@IntRange(from = 0) long position) {
-        return conn.querySingle(schema, schema.getDefaultResultColumns(),
-                getWhereClause(), getBindArgs(), groupBy, having, orderBy, position);
+        if (projection == null) {
+            return conn.querySingle(schema, schema.getDefaultResultColumns(),
+                    getWhereClause(), getBindArgs(), groupBy, having, orderBy, position);
+        }
+
+        Cursor cursor = conn.query(schema, getResultColumns(), getWhereClause(), getBindArgs(), groupBy, having,
+                orderBy, position + ",1");
+        try {
+            if (cursor.moveToFirst()) {
+                return newModelFromCursor(cursor);
+            } else {
+                return null;
+            }
+        } finally {
+            cursor.close();
+        }
     }
 
     @NonNull
@@ -213,7 +381,7 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
      */
     @NonNull
     public String buildQuery() {
-        return buildQueryWithColumns(schema.getDefaultResultColumns());
+        return buildQueryWithColumns(getResultColumns());
     }
 
     /**
@@ -226,6 +394,32 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
                 getWhereClause(), groupBy, having, orderBy, getLimitClause());
     }
 
+    /**
+     * Freezes the selector into a {@link PreparedSelector}, which keeps the built SQL and is re-executable
+     * with other bind args. Later modifications to the selector do not affect it.
+     *
+     * @return A prepared selector
+     */
+    @NonNull
+    public PreparedSelector<Model> prepare() {
+        String whereClause = getWhereClause();
+        String countSql = SQLiteQueryBuilder.buildQueryString(
+                false, schema.getSelectFromTableClause(), OrmaConnection.countSelections,
+                whereClause, null, null, null, null);
+        String existsSql = OrmaConnection.buildExistsQuery(schema, whereClause);
+        String valueSql;
+        if (limit == -1) {
+            valueSql = SQLiteQueryBuilder.buildQueryString(
+                    false, schema.getSelectFromTableClause(), getResultColumns(),
+                    whereClause, groupBy, having, orderBy, "1");
+        } else {
+            valueSql = buildQuery();
+        }
+        Object[] bindArgs = getBindArgs();
+        return new PreparedSelector<>(clone(), buildQuery(), countSql, existsSql, valueSql,
+                bindArgs != null ? bindArgs.clone() : new Object[0]);
+    }
+
     /**
      * Executes a query and returns the result as a list.
      *
@@ -240,39 +434,103 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
                 list.add(item);
             }
         });
+        prefetchAssociations(list);
         return list;
     }
 
+    @SuppressWarnings("unchecked")
+    void prefetchAssociations(@NonNull List<Model> models) {
+        for (ColumnDef<Model, ?> column : prefetchColumns) {
+            List<SingleAssociation<Object>> associations = new ArrayList<>(models.size());
+            for (Model model : models) {
+                associations.add((SingleAssociation<Object>) column.get(model));
+            }
+            SingleAssociation.prefetch(conn, associations);
+        }
+    }
+
+    /**
+     * Executes a query and returns the projected columns as a list of rows, without creating models.
+     *
+     * @return A list of rows
+     * @throws InvalidStatementException if {@link #project(ColumnDef[])} is not called
+     */
+    @NonNull
+    public List<ProjectedRow<Model>> toRows() {
+        if (projection == null) {
+            throw new InvalidStatementException("Missing project() to create rows");
+        }
+
+        List<ProjectedRow<Model>> rows = new ArrayList<>();
+        Cursor cursor = execute();
+        try {
+            while (cursor.moveToNext()) {
+                Object[] values = new Object[projection.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = projection.get(i).getFromCursor(conn, cursor, i);
+                }
+                rows.add(new ProjectedRow<>(projection, values));
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
     /**
      * Executes a query and calls {@code Action1<Model>#call} for each model}.
      *
      * @param action An action called for each model in the iteration.
      */
     public void forEach(@NonNull Action1<Model> action) {
+        int generation = conn.getModelCache().generation();
         Cursor cursor = execute();
         try {
-            for (int pos = 0; cursor.moveToPosition(pos); pos++) {
-                action.call(newModelFromCursor(cursor));
+            while (cursor.moveToNext()) {
+                action.call(newModelFromCursor(cursor, generation));
             }
         } finally {
             cursor.close();
         }
     }
 
+    /**
+     * Creates a model from the current row of {@code cursor}, which is not put into the model cache because
+     * it is unknown whether the cache is invalidated during the query.
+     */
     @NonNull
     public Model newModelFromCursor(@NonNull Cursor cursor) {
+        if (projection != null) {
+            return schema.newModelFromCursor(conn, cursor, projection);
+        }
         return schema.newModelFromCursor(conn, cursor, 0);
     }
 
+    /**
+     * Creates a model from the current row of {@code cursor}, and puts it into the model cache.
+     *
+     * @param modelCacheGeneration {@link ModelCache#generation()} taken before the query of {@code cursor}
+     */
+    @NonNull
+    public Model newModelFromCursor(@NonNull Cursor cursor, int modelCacheGeneration) {
+        if (projection != null) {
+            return schema.newModelFromCursor(conn, cursor, projection);
+        }
+        Model model = schema.newModelFromCursor(conn, cursor, 0);
+        conn.cacheModel(schema, model, modelCacheGeneration);
+        return model;
+    }
+
     @NonNull
     public Observable<Model> executeAsObservable() {
         return Observable.create(new Observable.OnSubscribe<Model>() {
             @Override
             public void call(final Subscriber<? super Model> subscriber) {
+                int generation = conn.getModelCache().generation();
                 final Cursor cursor = execute();
                 try {
-                    for (int pos = 0; !subscriber.isUnsubscribed() && cursor.moveToPosition(pos); pos++) {
-                        subscriber.onNext(newModelFromCursor(cursor));
+                    while (!subscriber.isUnsubscribed() && cursor.moveToNext()) {
+                        subscriber.onNext(newModelFromCursor(cursor, generation));
                     }
                     if (!subscriber.isUnsubscribed()) {
                         subscriber.onCompleted();
@@ -284,6 +542,71 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
         });
     }
 
+    /**
+     * Executes the query, and re-executes it each time tables the query depends on are changed.
+     * Changes are debounced in {@link #DEFAULT_OBSERVE_DEBOUNCE_MILLIS}.
+     *
+     * @return An {@link Observable} of query results, which are emitted in {@link Schedulers#io()}
+     * @see OrmaConnection#observeTableChanges()
+     */
+    @NonNull
+    public Observable<List<Model>> observe() {
+        return observe(DEFAULT_OBSERVE_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param debounce The time to wait for subsequent changes before re-executing the query
+     * @param unit     The unit of {@code debounce}
+     * @return An {@link Observable} of query results, which are emitted in {@link Schedulers#io()}
+     * @see #observe()
+     */
+    @NonNull
+    public Observable<List<Model>> observe(long debounce, @NonNull TimeUnit unit) {
+        final Selector<Model, ?> selector = clone();
+        return observeDependentTableChanges(debounce, unit)
+                .startWith(getDependentTableNames())
+                .onBackpressureLatest()
+                .observeOn(Schedulers.io())
+                .map(new Func1<Set<String>, List<Model>>() {
+                    @Override
+                    public List<Model> call(Set<String> tableNames) {
+                        return selector.toList();
+                    }
+                });
+    }
+
+    /**
+     * @param debounce The time to wait for subsequent changes
+     * @param unit     The unit of {@code debounce}
+     * @return An {@link Observable} of sets of changed tables, filtered by {@link #getDependentTableNames()}
+     * @see OrmaConnection#observeTableChanges()
+     */
+    @NonNull
+    public Observable<Set<String>> observeDependentTableChanges(long debounce, @NonNull TimeUnit unit) {
+        final Set<String> dependentTableNames = getDependentTableNames();
+        return conn.observeTableChanges()
+                .filter(new Func1<Set<String>, Boolean>() {
+                    @Override
+                    public Boolean call(Set<String> tableNames) {
+                        for (String tableName : tableNames) {
+                            if (dependentTableNames.contains(tableName)) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                })
+                .debounce(debounce, unit);
+    }
+
+    /**
+     * @return The names of the table and the tables joined for direct associations
+     */
+    @NonNull
+    public Set<String> getDependentTableNames() {
+        return conn.getDependentTableNames(schema);
+    }
+
     // implements Iterable<Model>
 
     /**
@@ -292,6 +615,46 @@ public abstract class Selector<Model, S extends Selector<Model, ?>>
     @NonNull
     @Override
     public Iterator<Model> iterator() {
-        return new OrmaIterator<>(this);
+        if (keysetPagination) {
+            List<OrderSpec<Model>> keys = buildKeysForKeysetPagination();
+            if (keys != null) {
+                return new OrmaKeysetIterator<>(this, keys, iterationBatchSize);
+            }
+        }
+        return new OrmaIterator<>(this, iterationBatchSize, countInIteration);
+    }
+
+    /**
+     * @return The ordering terms with the primary key as the tiebreaker, or {@code null} if keyset pagination is not
+     * available for the selector
+     */
+    @Nullable
+    protected List<OrderSpec<Model>> buildKeysForKeysetPagination() {
+        if (hasRawOrderingTerms || groupBy != null || having != null || limit != -1 || offset != -1 || page != -1) {
+            return null;
+        }
+
+        List<OrderSpec<Model>> keys = new ArrayList<>(orderSpecs.size() + 1);
+        for (OrderSpec<Model> orderSpec : orderSpecs) {
+            if (!isAvailableForKey(orderSpec.column)) {
+                return null;
+            }
+            keys.add(orderSpec);
+            if (orderSpec.column.isPrimaryKey()) {
+                return keys; // the rest never affects the order
+            }
+        }
+
+        ColumnDef<Model, ?> primaryKey = schema.getPrimaryKey();
+        if (!isAvailableForKey(primaryKey)) {
+            return null;
+        }
+        keys.add(primaryKey.orderInAscending());
+        return keys;
+    }
+
+    private static boolean isAvailableForKey(ColumnDef<?, ?> column) {
+        // NULL can't be compared
+        return !column.isNullable();
     }
 }
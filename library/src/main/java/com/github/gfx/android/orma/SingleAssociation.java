@@ -22,9 +22,16 @@ import com.github.gfx.android.orma.exception.NoValueException;
 import com.github.gfx.android.orma.gson.SingleAssociationTypeAdapterFactory;
 import com.github.gfx.android.orma.internal.Schemas;
 
+import android.database.Cursor;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 import rx.Single;
 import rx.SingleSubscriber;
@@ -37,28 +44,51 @@ import rx.SingleSubscriber;
 @JsonAdapter(SingleAssociationTypeAdapterFactory.class)
 public class SingleAssociation<Model> implements Parcelable {
 
+    /**
+     * The number of ids in an {@code IN (...)} clause of {@link #prefetch(OrmaConnection, Collection)}.
+     */
+    static final int PREFETCH_CHUNK_SIZE = Inserter.MAX_VARIABLE_NUMBER;
+
     final long id;
 
     final Single<Model> single;
 
+    @Nullable
+    final Schema<Model> schema;
+
+    /**
+     * A model loaded by {@link #prefetch(OrmaConnection, Collection)}, which is used instead of a query.
+     */
+    @Nullable
+    volatile Model prefetched;
+
     public SingleAssociation(long id, @NonNull Model model) {
         this.id = id;
         this.single = Single.just(model);
+        this.schema = null;
     }
 
     public SingleAssociation(long id, @NonNull Single<Model> single) {
         this.id = id;
         this.single = single;
+        this.schema = null;
     }
 
     public SingleAssociation(@NonNull final OrmaConnection conn, @NonNull final Schema<Model> schema, final long id) {
         this.id = id;
+        this.schema = schema;
         single = Single.create(new Single.OnSubscribe<Model>() {
             @Override
             public void call(SingleSubscriber<? super Model> subscriber) {
+                Model prefetchedModel = prefetched;
+                if (prefetchedModel != null) {
+                    subscriber.onSuccess(prefetchedModel);
+                    return;
+                }
+                // served from the model cache by querySingle()
                 ColumnDef<Model, ?> primaryKey = schema.getPrimaryKey();
                 String whereClause = primaryKey.getEscapedName() + " = ?";
-                String[] whereArgs = {String.valueOf(id)};
+                Object[] whereArgs = {id};
                 Model model = conn.querySingle(schema, schema.getDefaultResultColumns(),
                         whereClause, whereArgs, null, null, null, 0);
                 if (model != null) {
@@ -94,6 +124,77 @@ public class SingleAssociation<Model> implements Parcelable {
         }));
     }
 
+    /**
+     * Loads the models that lazy {@code SingleAssociation}s refer to with {@code WHERE id IN (...)} queries,
+     * instead of a query per association. Associations which are not lazy or whose model does not exist
+     * are left as they are.
+     *
+     * @param conn         The connection to query
+     * @param associations Associations to load
+     * @param <T>          The type of the associated model
+     */
+    public static <T> void prefetch(@NonNull OrmaConnection conn,
+            @NonNull Collection<SingleAssociation<T>> associations) {
+        Schema<T> schema = null;
+        LinkedHashMap<Long, List<SingleAssociation<T>>> pending = new LinkedHashMap<>();
+        for (SingleAssociation<T> association : associations) {
+            if (association == null || association.schema == null || association.prefetched != null) {
+                continue;
+            }
+            schema = association.schema;
+            T cachedModel = conn.getModelCache().get(schema, association.id);
+            if (cachedModel != null) {
+                association.prefetched = cachedModel;
+                continue;
+            }
+            List<SingleAssociation<T>> list = pending.get(association.id);
+            if (list == null) {
+                list = new ArrayList<>();
+                pending.put(association.id, list);
+            }
+            list.add(association);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        ColumnDef<T, ?> primaryKey = schema.getPrimaryKey();
+        List<Long> ids = new ArrayList<>(pending.keySet());
+        for (int start = 0; start < ids.size(); start += PREFETCH_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(start, Math.min(start + PREFETCH_CHUNK_SIZE, ids.size()));
+
+            StringBuilder whereClause = new StringBuilder();
+            whereClause.append(primaryKey.getFullyQualifiedName());
+            whereClause.append(" IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i != 0) {
+                    whereClause.append(',');
+                }
+                whereClause.append('?');
+            }
+            whereClause.append(')');
+
+            int generation = conn.getModelCache().generation();
+            Cursor cursor = conn.query(schema, schema.getDefaultResultColumns(), whereClause.toString(),
+                    chunk.toArray(), null, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    T model = schema.newModelFromCursor(conn, cursor, 0);
+                    conn.cacheModel(schema, model, generation);
+                    long id = ((Number) primaryKey.getSerialized(model)).longValue();
+                    List<SingleAssociation<T>> list = pending.get(id);
+                    if (list != null) {
+                        for (SingleAssociation<T> association : list) {
+                            association.prefetched = model;
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
     public long getId() {
         return id;
     }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A statement slower than the threshold, with the result of {@code EXPLAIN QUERY PLAN}.
+ */
+public class SlowQuery {
+
+    @NonNull
+    public final String sql;
+
+    @Nullable
+    public final Object[] bindArgs;
+
+    public final long elapsedNanos;
+
+    /**
+     * The {@code detail} column of {@code EXPLAIN QUERY PLAN}, e.g. {@code "SCAN TABLE `Book`"}.
+     * Empty if the statement cannot be explained.
+     */
+    @NonNull
+    public final List<String> queryPlan;
+
+    /**
+     * Tables scanned without indexes, though they have indexed columns. Each of them suggests a missing index
+     * or a condition that the indexes do not cover.
+     */
+    @NonNull
+    public final List<String> fullScannedTables;
+
+    public SlowQuery(@NonNull String sql, @Nullable Object[] bindArgs, long elapsedNanos,
+            @NonNull List<String> queryPlan, @NonNull List<String> fullScannedTables) {
+        this.sql = sql;
+        this.bindArgs = bindArgs;
+        this.elapsedNanos = elapsedNanos;
+        this.queryPlan = queryPlan;
+        this.fullScannedTables = fullScannedTables;
+    }
+
+    public boolean hasFullScan() {
+        return !fullScannedTables.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "slow query (%.3fms): ", elapsedNanos / 1000000.0));
+        sb.append(sql);
+        if (bindArgs != null) {
+            sb.append(" - ");
+            sb.append(Arrays.deepToString(bindArgs));
+        }
+        for (String detail : queryPlan) {
+            sb.append("\n  ");
+            sb.append(detail);
+        }
+        if (hasFullScan()) {
+            sb.append("\n  full scan on indexed tables: ");
+            sb.append(fullScannedTables);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma;
+
+import com.github.gfx.android.orma.annotation.OnConflict;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collections;
+
+/**
+ * <p>Represents prepared statements to insert or update models by their primary keys.</p>
+ * <p>It uses {@code INSERT ... ON CONFLICT (primaryKey) DO UPDATE} if SQLite supports it (3.24.0 or later), or
+ * {@code UPDATE} followed by {@code INSERT} for a row not updated. Unlike {@code INSERT OR REPLACE}, it never deletes
+ * existing rows, so row ids are kept and {@code ON DELETE} actions are not triggered.</p>
+ * <p>The model must have a {@code @PrimaryKey}; otherwise the constructor throws
+ * {@link UnsupportedOperationException}.</p>
+ */
+public class Upserter<Model> {
+
+    final OrmaConnection conn;
+
+    final Schema<Model> schema;
+
+    final boolean nativeUpsert;
+
+    /**
+     * {@code INSERT ... ON CONFLICT DO UPDATE} if {@link #nativeUpsert}, or {@code UPDATE ... WHERE primaryKey = ?}.
+     */
+    final String sql;
+
+    final SQLiteStatement statement;
+
+    @Nullable
+    final String insertSql;
+
+    @Nullable
+    final SQLiteStatement insertStatement;
+
+    public Upserter(OrmaConnection conn, Schema<Model> schema) {
+        this(conn, schema, conn.isUpsertSupported());
+    }
+
+    /**
+     * @param nativeUpsert If {@code true}, {@code INSERT ... ON CONFLICT DO UPDATE} is used; otherwise {@code UPDATE}
+     *                     and {@code INSERT}.
+     */
+    public Upserter(OrmaConnection conn, Schema<Model> schema, boolean nativeUpsert) {
+        SQLiteDatabase db = conn.getWritableDatabase();
+        this.conn = conn;
+        this.schema = schema;
+        this.nativeUpsert = nativeUpsert;
+        if (nativeUpsert) {
+            sql = schema.getUpsertStatement();
+            insertSql = null;
+            insertStatement = null;
+        } else {
+            sql = schema.getUpdateStatement();
+            insertSql = schema.getInsertStatement(OnConflict.NONE, false);
+            insertStatement = db.compileStatement(insertSql);
+        }
+        statement = db.compileStatement(sql);
+    }
+
+    public boolean isNativeUpsert() {
+        return nativeUpsert;
+    }
+
+    /**
+     * Inserts {@code model}, or updates the row that has the same primary key.
+     *
+     * @param model A model object to upsert
+     */
+    public void execute(@NonNull Model model) {
+        if (nativeUpsert) {
+            try {
+                executeRow(model);
+            } finally {
+                conn.onTableChanged(schema, true);
+            }
+        } else {
+            executeAll(Collections.singletonList(model));
+        }
+    }
+
+    /**
+     * Inserts or updates {@code models} in a transaction.
+     *
+     * @param models Model objects to upsert
+     * @return The number of upserted models
+     */
+    public int executeAll(@NonNull Iterable<Model> models) {
+        SQLiteDatabase db = conn.getWritableDatabase();
+        int count = 0;
+        conn.beginTransaction(db, true);
+        boolean successful = false;
+        try {
+            for (Model model : models) {
+                executeRow(model);
+                count++;
+            }
+            db.setTransactionSuccessful();
+            successful = true;
+        } finally {
+            conn.onTableChanged(schema, true);
+            conn.endTransaction(db, successful);
+        }
+        return count;
+    }
+
+    void executeRow(Model model) {
+        Object[] args = (conn.trace || conn.isQueryReported()) ? schema.convertToArgs(conn, model, false) : null;
+        if (conn.trace) {
+            conn.trace(sql, args);
+        }
+        schema.bindArgs(conn, statement, model, false);
+        long t0 = System.nanoTime();
+        int count = statement.executeUpdateDelete();
+        conn.onQueryExecuted(sql, args, t0, count);
+        if (count == 0 && insertStatement != null) {
+            if (conn.trace) {
+                conn.trace(insertSql, args);
+            }
+            schema.bindArgs(conn, insertStatement, model, false);
+            t0 = System.nanoTime();
+            long rowId = insertStatement.executeInsert();
+            conn.onQueryExecuted(insertSql, args, t0, rowId != -1 ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An LRU cache of {@code COUNT(*)} results keyed by SQL and bind args. Each entry knows the tables the query reads,
+ * and is invalidated by {@link #invalidate(String)} when one of them is written.
+ *
+ * A count query that runs concurrently with invalidation is not cached: pass {@link #generation()} taken before
+ * the query to {@link #put(String, Set, int, int)}.
+ */
+public class CountCache {
+
+    static class Entry {
+
+        final Set<String> tableNames;
+
+        final int count;
+
+        Entry(Set<String> tableNames, int count) {
+            this.tableNames = tableNames;
+            this.count = count;
+        }
+    }
+
+    final int maxSize;
+
+    final LruCache<String, Entry> cache;
+
+    int generation;
+
+    int hitCount;
+
+    int missCount;
+
+    /**
+     * @param maxSize The max number of counts to cache. {@code 0} disables caching.
+     */
+    public CountCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        this.maxSize = maxSize;
+        this.cache = maxSize == 0 ? null : new LruCache<String, Entry>(maxSize);
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @return A key for {@code sql} and {@code bindArgs}, which distinguishes the types of bind args
+     */
+    @NonNull
+    public static String buildKey(@NonNull String sql, @Nullable Object[] bindArgs) {
+        if (bindArgs == null || bindArgs.length == 0) {
+            return sql;
+        }
+        StringBuilder key = new StringBuilder(sql);
+        for (Object arg : bindArgs) {
+            key.append('\0');
+            if (arg == null) {
+                key.append('N');
+            } else if (arg instanceof byte[]) {
+                key.append('B');
+                for (byte b : (byte[]) arg) {
+                    key.append(Integer.toHexString(b & 0xff));
+                    key.append(',');
+                }
+            } else {
+                key.append(arg.getClass().getSimpleName().charAt(0));
+                key.append(arg);
+            }
+        }
+        return key.toString();
+    }
+
+    @Nullable
+    public synchronized Integer get(@NonNull String key) {
+        if (cache == null) {
+            return null;
+        }
+        Entry entry = cache.get(key);
+        if (entry != null) {
+            hitCount++;
+            return entry.count;
+        } else {
+            missCount++;
+            return null;
+        }
+    }
+
+    public synchronized int generation() {
+        return generation;
+    }
+
+    /**
+     * @param key        A key built by {@link #buildKey(String, Object[])}
+     * @param tableNames The tables the query reads
+     * @param count      The result of the query
+     * @param generation {@link #generation()} taken before the query
+     */
+    public synchronized void put(@NonNull String key, @NonNull Set<String> tableNames, int count, int generation) {
+        if (cache == null || this.generation != generation) {
+            return;
+        }
+        cache.put(key, new Entry(tableNames, count));
+    }
+
+    /**
+     * Removes the counts that read {@code tableName}.
+     */
+    public synchronized void invalidate(@NonNull String tableName) {
+        generation++;
+        if (cache == null) {
+            return;
+        }
+        for (Map.Entry<String, Entry> entry : cache.snapshot().entrySet()) {
+            if (entry.getValue().tableNames.contains(tableName)) {
+                cache.remove(entry.getKey());
+            }
+        }
+    }
+
+    public synchronized void evictAll() {
+        generation++;
+        if (cache != null) {
+            cache.evictAll();
+        }
+    }
+
+    public int size() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CountCache{size=" + size() + ", maxSize=" + maxSize
+                + ", hits=" + hitCount + ", misses=" + missCount + "}";
+    }
+}
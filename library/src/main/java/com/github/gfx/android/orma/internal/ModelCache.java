@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.internal;
+
+import com.github.gfx.android.orma.Schema;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An LRU cache of models keyed by their schema and primary key, which serves primary key lookups without queries.
+ *
+ * Each table has its own LRU of {@code maxSize} models, so that a write to a table invalidates only the table's models
+ * by {@link #invalidate(Schema)}.
+ *
+ * A model loaded by a query that runs concurrently with invalidation is not cached: pass {@link #generation()} taken
+ * before the query to {@link #put(Schema, Object, int)}.
+ */
+public class ModelCache {
+
+    final int maxSize;
+
+    final Map<Schema<?>, LruCache<Object, Object>> caches = new HashMap<>();
+
+    int generation;
+
+    int hitCount;
+
+    int missCount;
+
+    int evictionCount;
+
+    /**
+     * @param maxSize The max number of models to cache for each table. {@code 0} disables caching.
+     */
+    public ModelCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    public boolean isEnabled() {
+        return maxSize != 0;
+    }
+
+    /**
+     * @return A key for a primary key value, or {@code null} if it can't be a key
+     */
+    @Nullable
+    static Object toKey(@Nullable Object primaryKey) {
+        Object key = OrmaConditionBase.normalizeBindArg(primaryKey);
+        return key instanceof byte[] ? null : key;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public synchronized <T> T get(@NonNull Schema<T> schema, @Nullable Object primaryKey) {
+        if (maxSize == 0) {
+            return null;
+        }
+        Object key = toKey(primaryKey);
+        LruCache<Object, Object> cache = caches.get(schema);
+        T model = (key != null && cache != null) ? (T) cache.get(key) : null;
+        if (model != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return model;
+    }
+
+    public synchronized int generation() {
+        return generation;
+    }
+
+    /**
+     * @param schema     The schema of {@code model}
+     * @param model      A model loaded from the database
+     * @param generation {@link #generation()} taken before the query
+     */
+    public synchronized <T> void put(@NonNull Schema<T> schema, @NonNull T model, int generation) {
+        if (maxSize == 0 || this.generation != generation) {
+            return;
+        }
+        Object key = toKey(schema.getPrimaryKey().getSerialized(model));
+        if (key == null) {
+            return;
+        }
+        LruCache<Object, Object> cache = caches.get(schema);
+        if (cache == null) {
+            cache = new LruCache<>(maxSize);
+            caches.put(schema, cache);
+        }
+        cache.put(key, model);
+    }
+
+    /**
+     * Removes all the models of {@code schema}.
+     */
+    public synchronized void invalidate(@NonNull Schema<?> schema) {
+        generation++;
+        LruCache<Object, Object> cache = caches.remove(schema);
+        if (cache != null) {
+            evictionCount += cache.evictionCount();
+        }
+    }
+
+    /**
+     * Removes all the models.
+     */
+    public synchronized void evictAll() {
+        generation++;
+        for (LruCache<Object, Object> cache : caches.values()) {
+            evictionCount += cache.evictionCount();
+        }
+        caches.clear();
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (LruCache<Object, Object> cache : caches.values()) {
+            size += cache.size();
+        }
+        return size;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return The number of models evicted by the LRU, excluding ones removed by invalidation
+     */
+    public synchronized int evictionCount() {
+        int count = evictionCount;
+        for (LruCache<Object, Object> cache : caches.values()) {
+            count += cache.evictionCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return {@code hits / (hits + misses)}, or {@code 0} if there are no lookups
+     */
+    public synchronized double hitRate() {
+        int lookups = hitCount + missCount;
+        return lookups != 0 ? (double) hitCount / lookups : 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ModelCache{size=" + size() + ", maxSize=" + maxSize
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount() + "}";
+    }
+}
@@ -39,8 +39,17 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
     @Nullable
     protected StringBuilder whereClause;
 
+    /**
+     * Bind args normalized by {@link #normalizeBindArg(Object)}, which are bound to statements in their own types.
+     */
+    @Nullable
+    protected ArrayList<Object> bindArgs;
+
+    /**
+     * The cache of {@link #getBindArgs()}, reused across executions until bind args are modified.
+     */
     @Nullable
-    protected ArrayList<String> bindArgs;
+    private Object[] bindArgsArray;
 
     public OrmaConditionBase(@NonNull OrmaConnection conn, @NonNull Schema<Model> schema) {
         this.conn = conn;
@@ -66,13 +75,28 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
         }
 
         for (Object arg : args) {
-            if (arg == null) {
-                bindArgs.add(null);
-            } else if (arg instanceof Boolean) {
-                bindArgs.add((Boolean) arg ? "1" : "0");
-            } else {
-                bindArgs.add(arg.toString());
-            }
+            bindArgs.add(normalizeBindArg(arg));
+        }
+        bindArgsArray = null;
+    }
+
+    /**
+     * @param arg A bind arg
+     * @return {@code arg} as one of {@code null}, {@link Long}, {@link Double}, {@link String}, or {@code byte[]}
+     */
+    @Nullable
+    public static Object normalizeBindArg(@Nullable Object arg) {
+        if (arg == null || arg instanceof Long || arg instanceof Double || arg instanceof String
+                || arg instanceof byte[]) {
+            return arg;
+        } else if (arg instanceof Boolean) {
+            return (Boolean) arg ? 1L : 0L;
+        } else if (arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            return ((Number) arg).longValue();
+        } else if (arg instanceof Float) {
+            return ((Float) arg).doubleValue();
+        } else {
+            return arg.toString();
         }
     }
 
@@ -165,8 +189,12 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
 
     @SuppressWarnings("unchecked")
     public C where(@NonNull OrmaConditionBase<Model, ?> condition) {
-        if (condition.whereClause != null && condition.bindArgs != null) {
-            this.where(condition.whereClause, condition.bindArgs);
+        if (condition.whereClause != null) {
+            if (condition.bindArgs != null) {
+                this.where(condition.whereClause, condition.bindArgs);
+            } else {
+                this.where(condition.whereClause);
+            }
         }
         return (C) this;
     }
@@ -176,13 +204,17 @@ public abstract class OrmaConditionBase<Model, C extends OrmaConditionBase<Model
         return whereClause != null ? whereClause.toString() : null;
     }
 
+    /**
+     * @return Bind args, which are shared across executions and must not be modified
+     */
     @Nullable
-    protected String[] getBindArgs() {
-        if (bindArgs != null) {
-            String[] array = new String[bindArgs.size()];
-            return bindArgs.toArray(array);
-        } else {
+    protected Object[] getBindArgs() {
+        if (bindArgs == null) {
             return null;
         }
+        if (bindArgsArray == null) {
+            bindArgsArray = bindArgs.toArray();
+        }
+        return bindArgsArray;
     }
 }
@@ -25,10 +25,15 @@ import java.util.NoSuchElementException;
 
 public class OrmaIterator<Model> implements Iterator<Model> {
 
-    static final int batchSize = 2000;
+    public static final int DEFAULT_BATCH_SIZE = 2000;
 
     final Selector<Model, ?> selector;
 
+    final int batchSize;
+
+    /**
+     * The number of rows, or {@code -1} if it is not counted.
+     */
     final int totalCount;
 
     int totalPos = 0;
@@ -37,22 +42,41 @@ public class OrmaIterator<Model> implements Iterator<Model> {
 
     Cursor cursor;
 
-    int cursorPos = 0;
+    /**
+     * {@link ModelCache#generation()} taken before {@link #cursor} is queried.
+     */
+    int modelCacheGeneration;
 
     public OrmaIterator(Selector<Model, ?> selector) {
+        this(selector, DEFAULT_BATCH_SIZE);
+    }
+
+    public OrmaIterator(Selector<Model, ?> selector, int batchSize) {
+        this(selector, batchSize, true);
+    }
+
+    /**
+     * @param counting If {@code false}, the iterator runs no {@code COUNT(*)} and stops at a short batch
+     */
+    public OrmaIterator(Selector<Model, ?> selector, int batchSize, boolean counting) {
         this.selector = selector;
-        this.totalCount = selector.count();
+        this.batchSize = batchSize;
+        this.totalCount = counting ? selector.count() : -1;
         fill();
     }
 
     void finish() {
-        cursor.close();
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
     }
 
     void fill() {
         if (cursor != null) {
             cursor.close();
         }
+        modelCacheGeneration = selector.getConnection().getModelCache().generation();
         cursor = selector
                 .clone()
                 .limit(batchSize)
@@ -60,31 +84,46 @@ public class OrmaIterator<Model> implements Iterator<Model> {
                 .execute();
 
         offset += batchSize;
-        cursorPos = 0;
     }
 
     @Override
     public boolean hasNext() {
-        return totalPos < totalCount;
+        if (totalCount != -1) {
+            return totalPos < totalCount;
+        }
+
+        if (cursor == null) {
+            return false;
+        }
+        if (cursor.getPosition() + 1 < cursor.getCount()) {
+            return true;
+        }
+        if (cursor.getCount() == batchSize) {
+            fill();
+            if (cursor.getCount() != 0) {
+                return true;
+            }
+        }
+        finish();
+        return false;
     }
 
     @Override
     public Model next() {
-        if (totalPos >= totalCount) {
+        if (!hasNext()) {
             throw new NoSuchElementException("OrmaIterator#next()");
         }
 
-        if (cursor.isLast()) {
+        if (!cursor.moveToNext()) {
             fill();
+            cursor.moveToNext();
         }
 
-        cursor.moveToPosition(cursorPos);
-        Model model = selector.newModelFromCursor(cursor);
+        Model model = selector.newModelFromCursor(cursor, modelCacheGeneration);
 
         totalPos++;
-        cursorPos++;
 
-        if (!hasNext()) {
+        if (totalCount != -1 && !hasNext()) {
             finish();
         }
 
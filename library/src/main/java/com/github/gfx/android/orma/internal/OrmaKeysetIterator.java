@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.internal;
+
+import com.github.gfx.android.orma.OrderSpec;
+import com.github.gfx.android.orma.Selector;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator that pages the result set by the last seen keys, i.e. keyset pagination, instead of {@code OFFSET}.
+ *
+ * For keys {@code (k1 ASC, k2 DESC)}, a batch after {@code (v1, v2)} is fetched with
+ * {@code WHERE (k1 > v1) OR (k1 = v1 AND k2 < v2)}. The last key must be unique, so the primary key is always
+ * the last one.
+ */
+public class OrmaKeysetIterator<Model> implements Iterator<Model> {
+
+    final Selector<Model, ?> selector;
+
+    final int batchSize;
+
+    final List<OrderSpec<Model>> keys;
+
+    final String[] columns;
+
+    final int keyColumnsOffset;
+
+    final String orderBy;
+
+    final String limit;
+
+    final String seekCondition;
+
+    @Nullable
+    Cursor cursor;
+
+    /**
+     * {@link ModelCache#generation()} taken before {@link #cursor} is queried.
+     */
+    int modelCacheGeneration;
+
+    int cursorCount;
+
+    int cursorPos;
+
+    @Nullable
+    Object[] lastKeyValues;
+
+    public OrmaKeysetIterator(@NonNull Selector<Model, ?> selector, @NonNull List<OrderSpec<Model>> keys,
+            int batchSize) {
+        this.selector = selector;
+        this.keys = keys;
+        this.batchSize = batchSize;
+
+        String[] resultColumns = selector.getResultColumns();
+        keyColumnsOffset = resultColumns.length;
+        columns = new String[keyColumnsOffset + keys.size()];
+        System.arraycopy(resultColumns, 0, columns, 0, keyColumnsOffset);
+        for (int i = 0; i < keys.size(); i++) {
+            columns[keyColumnsOffset + i] = keys.get(i).column.getFullyQualifiedName();
+        }
+
+        orderBy = buildOrderBy(keys);
+        limit = String.valueOf(batchSize);
+        seekCondition = buildSeekCondition(keys);
+
+        fill();
+    }
+
+    static <Model> String buildOrderBy(List<OrderSpec<Model>> keys) {
+        StringBuilder sb = new StringBuilder();
+        for (OrderSpec<Model> key : keys) {
+            if (sb.length() != 0) {
+                sb.append(", ");
+            }
+            sb.append(key.column.getFullyQualifiedName());
+            sb.append(' ');
+            sb.append(key.ordering);
+        }
+        return sb.toString();
+    }
+
+    static <Model> String buildSeekCondition(List<OrderSpec<Model>> keys) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keys.size(); i++) {
+            if (i != 0) {
+                sb.append(" OR ");
+            }
+            sb.append('(');
+            for (int j = 0; j < i; j++) {
+                sb.append(keys.get(j).column.getFullyQualifiedName());
+                sb.append(" = ? AND ");
+            }
+            OrderSpec<Model> key = keys.get(i);
+            sb.append(key.column.getFullyQualifiedName());
+            sb.append(key.ordering.equals(OrderSpec.ASC) ? " > ?" : " < ?");
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    void fill() {
+        String whereClause = selector.getWhereClause();
+        Object[] bindArgs = selector.getBindArgs();
+
+        if (lastKeyValues != null) {
+            if (whereClause == null) {
+                whereClause = seekCondition;
+            } else {
+                whereClause = "(" + whereClause + ") AND (" + seekCondition + ")";
+            }
+            bindArgs = concat(bindArgs, buildSeekArgs(lastKeyValues));
+        }
+
+        String sql = SQLiteQueryBuilder.buildQueryString(false, selector.getSchema().getSelectFromTableClause(),
+                columns, whereClause, null, null, orderBy, limit);
+        modelCacheGeneration = selector.getConnection().getModelCache().generation();
+        cursor = selector.getConnection().rawQuery(sql, bindArgs);
+        cursorCount = cursor.getCount();
+        cursorPos = 0;
+        if (!cursor.moveToFirst()) {
+            finish();
+        }
+    }
+
+    static Object[] buildSeekArgs(Object[] values) {
+        // (k1 > ?) OR (k1 = ? AND k2 > ?) OR ... takes n * (n + 1) / 2 args
+        Object[] args = new Object[values.length * (values.length + 1) / 2];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                args[n++] = values[j];
+            }
+        }
+        return args;
+    }
+
+    static Object[] concat(@Nullable Object[] a, @NonNull Object[] b) {
+        if (a == null) {
+            return b;
+        }
+        Object[] result = new Object[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    Object[] readKeyValues(Cursor cursor) {
+        Object[] values = new Object[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            int index = keyColumnsOffset + i;
+            switch (cursor.getType(index)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    values[i] = cursor.getLong(index);
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    values[i] = cursor.getDouble(index);
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    values[i] = cursor.getBlob(index);
+                    break;
+                default:
+                    values[i] = cursor.getString(index);
+                    break;
+            }
+        }
+        return values;
+    }
+
+    void finish() {
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor != null;
+    }
+
+    @Override
+    public Model next() {
+        if (cursor == null) {
+            throw new NoSuchElementException("OrmaKeysetIterator#next()");
+        }
+
+        Model model = selector.newModelFromCursor(cursor, modelCacheGeneration);
+
+        if (++cursorPos == cursorCount) {
+            if (cursorCount < batchSize) {
+                finish();
+            } else {
+                lastKeyValues = readKeyValues(cursor);
+                finish();
+                fill();
+            }
+        } else {
+            cursor.moveToNext();
+        }
+
+        return model;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Iterator#remove()");
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.internal;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed-size pool of read-only {@link SQLiteDatabase} handles, which are given in round-robin.
+ *
+ * Under WAL, readers on different handles run in parallel with each other and with the writer. Each handle is
+ * thread-safe by itself, so a handle is never checked out; two threads may just share the same handle.
+ */
+public class ReadConnectionPool {
+
+    final SQLiteDatabase[] databases;
+
+    final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * @param path         The path of the database file, which must exist and be in WAL mode
+     * @param size         The number of read-only handles
+     * @param sqlCacheSize Passed to {@link SQLiteDatabase#setMaxSqlCacheSize(int)} if it is positive
+     */
+    public ReadConnectionPool(@NonNull String path, int size, int sqlCacheSize) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size <= 0");
+        }
+        databases = new SQLiteDatabase[size];
+        for (int i = 0; i < size; i++) {
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY);
+            if (sqlCacheSize > 0) {
+                db.setMaxSqlCacheSize(sqlCacheSize);
+            }
+            databases[i] = db;
+        }
+    }
+
+    @NonNull
+    public SQLiteDatabase acquire() {
+        int i = (counter.getAndIncrement() & Integer.MAX_VALUE) % databases.length;
+        return databases[i];
+    }
+
+    public int size() {
+        return databases.length;
+    }
+
+    public void close() {
+        for (SQLiteDatabase db : databases) {
+            db.close();
+        }
+    }
+}
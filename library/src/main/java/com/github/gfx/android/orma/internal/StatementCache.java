@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.internal;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.support.v4.util.LruCache;
+
+/**
+ * An LRU cache of {@link SQLiteStatement} keyed by SQL.
+ *
+ * A statement is checked out of the cache by {@link #acquire(SQLiteDatabase, String)} and must be checked in by
+ * {@link #release(String, SQLiteStatement)}, so that a cached statement is never bound by two threads at once.
+ * If two threads acquire the same SQL at the same time, the second one just compiles another statement.
+ */
+public class StatementCache {
+
+    final int maxSize;
+
+    final LruCache<String, SQLiteStatement> cache;
+
+    int hitCount;
+
+    int missCount;
+
+    /**
+     * @param maxSize The max number of statements to cache. {@code 0} disables caching.
+     */
+    public StatementCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        this.maxSize = maxSize;
+        this.cache = maxSize == 0 ? null : new LruCache<String, SQLiteStatement>(maxSize) {
+            @Override
+            protected void entryRemoved(boolean evicted, String key, SQLiteStatement oldValue,
+                    SQLiteStatement newValue) {
+                // a statement removed by acquire() is in use; don't close it
+                if (evicted || newValue != null) {
+                    oldValue.close();
+                }
+            }
+        };
+    }
+
+    @NonNull
+    public SQLiteStatement acquire(@NonNull SQLiteDatabase db, @NonNull String sql) {
+        if (cache == null) {
+            return db.compileStatement(sql);
+        }
+
+        SQLiteStatement statement = cache.remove(sql);
+        synchronized (this) {
+            if (statement != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+        }
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+        }
+        return statement;
+    }
+
+    public void release(@NonNull String sql, @NonNull SQLiteStatement statement) {
+        if (cache == null) {
+            statement.close();
+            return;
+        }
+
+        statement.clearBindings();
+        cache.put(sql, statement);
+    }
+
+    /**
+     * Closes all the cached statements.
+     */
+    public void evictAll() {
+        if (cache != null) {
+            cache.evictAll();
+        }
+    }
+
+    public int size() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    public int evictionCount() {
+        return cache != null ? cache.evictionCount() : 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StatementCache{size=" + size() + ", maxSize=" + maxSize
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount() + "}";
+    }
+}
@@ -22,7 +22,9 @@ import com.github.gfx.android.orma.Relation;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.view.LayoutInflater;
 
 import rx.Observable;
@@ -44,6 +46,9 @@ public class OrmaAdapter<Model> {
 
     int totalCount = 0;
 
+    @Nullable
+    PageCache<Model> pageCache;
+
     public OrmaAdapter(@NonNull Context context, @NonNull Relation<Model, ?> relation) {
         this.context = context;
         this.relation = relation;
@@ -74,8 +79,64 @@ public class OrmaAdapter<Model> {
         handler.post(task);
     }
 
+    /**
+     * Enables {@link PageCache}, which loads items by pages instead of by a query per item.
+     *
+     * @param pageSize The number of items in a page
+     * @param maxPages The max number of pages to keep
+     * @param listener Called when a page loaded in background becomes available
+     */
+    public void enablePageCache(@IntRange(from = 1) int pageSize, @IntRange(from = 1) int maxPages,
+            @Nullable PageCache.OnPageLoadedListener listener) {
+        enablePageCache(pageSize, maxPages, listener, null);
+    }
+
+    /**
+     * Enables {@link PageCache}, which loads items by pages instead of by a query per item.
+     *
+     * @param pageSize       The number of items in a page
+     * @param maxPages       The max number of pages to keep
+     * @param listener       Called when a page loaded in background becomes available
+     * @param failedListener Called when loading a page in background fails, or {@code null} to rethrow the
+     *                       exception in the UI thread
+     */
+    public void enablePageCache(@IntRange(from = 1) int pageSize, @IntRange(from = 1) int maxPages,
+            @Nullable PageCache.OnPageLoadedListener listener,
+            @Nullable PageCache.OnPageLoadFailedListener failedListener) {
+        pageCache = new PageCache<>(relation, pageSize, maxPages);
+        pageCache.setOnPageLoadedListener(listener);
+        pageCache.setOnPageLoadFailedListener(failedListener);
+    }
+
+    /**
+     * Discards cached pages, if any. It is called when the relation is modified through the adapter.
+     */
+    public void clearPageCache() {
+        if (pageCache != null) {
+            pageCache.clear();
+        }
+    }
+
     @NonNull
     public Model getItem(int position) {
+        if (pageCache != null) {
+            return pageCache.get(position);
+        }
+        return relation.get(position);
+    }
+
+    /**
+     * Returns the item if it is available without a query. With {@link PageCache}, it starts loading the page
+     * and returns {@code null}, so that a placeholder can be shown until the page is loaded.
+     *
+     * @param position The position of the item
+     * @return The item, or {@code null} if it is being loaded
+     */
+    @Nullable
+    public Model getItemIfLoaded(int position) {
+        if (pageCache != null) {
+            return pageCache.getIfLoaded(position);
+        }
         return relation.get(position);
     }
 
@@ -91,6 +152,7 @@ public class OrmaAdapter<Model> {
                     @Override
                     public void call(Long rowId) {
                         totalCount++;
+                        clearPageCache();
                     }
                 });
     }
@@ -102,6 +164,7 @@ public class OrmaAdapter<Model> {
                     @Override
                     public void call(final Integer deletedPosition) {
                         totalCount--;
+                        clearPageCache();
                     }
                 });
     }
@@ -114,6 +177,7 @@ public class OrmaAdapter<Model> {
                     @Override
                     public void call(Integer deletedItems) {
                         totalCount = 0;
+                        clearPageCache();
                     }
                 });
     }
@@ -20,7 +20,9 @@ import com.github.gfx.android.orma.ModelFactory;
 import com.github.gfx.android.orma.Relation;
 
 import android.content.Context;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.view.LayoutInflater;
 import android.widget.BaseAdapter;
 
@@ -54,6 +56,29 @@ public abstract class OrmaListAdapter<Model> extends BaseAdapter {
         return delegate.getItem(position);
     }
 
+    /**
+     * @see OrmaAdapter#getItemIfLoaded(int)
+     */
+    @Nullable
+    public Model getItemIfLoaded(int position) {
+        return delegate.getItemIfLoaded(position);
+    }
+
+    /**
+     * Enables {@link PageCache}, which invokes {@link #notifyDataSetChanged()} when a page is loaded in background.
+     *
+     * @param pageSize The number of items in a page
+     * @param maxPages The max number of pages to keep
+     */
+    public void enablePageCache(@IntRange(from = 1) int pageSize, @IntRange(from = 1) int maxPages) {
+        delegate.enablePageCache(pageSize, maxPages, new PageCache.OnPageLoadedListener() {
+            @Override
+            public void onPageLoaded(int position, int count) {
+                notifyDataSetChanged();
+            }
+        });
+    }
+
     @Override
     public long getItemId(int position) {
         return 0;
@@ -17,16 +17,28 @@
 package com.github.gfx.android.orma.widget;
 
 import com.github.gfx.android.orma.ModelFactory;
+import com.github.gfx.android.orma.OrmaConnection;
 import com.github.gfx.android.orma.Relation;
+import com.github.gfx.android.orma.Selector;
 
 import android.content.Context;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
+import android.util.Log;
 import android.view.LayoutInflater;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import rx.Observable;
 import rx.Single;
+import rx.Subscription;
 import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
 
 
 /**
@@ -39,6 +51,12 @@ public abstract class OrmaRecyclerViewAdapter<Model, VH extends RecyclerView.Vie
 
     protected final OrmaAdapter<Model> delegate;
 
+    /**
+     * The last snapshot of {@link #startIncrementalUpdates()}, which is only accessed in its background thread.
+     */
+    @Nullable
+    RowSnapshot snapshot;
+
     public OrmaRecyclerViewAdapter(@NonNull Context context, @NonNull Relation<Model, ?> relation) {
         this(new OrmaAdapter<>(context, relation));
     }
@@ -77,6 +95,33 @@ public abstract class OrmaRecyclerViewAdapter<Model, VH extends RecyclerView.Vie
         return delegate.getItem(position);
     }
 
+    /**
+     * @see OrmaAdapter#getItemIfLoaded(int)
+     */
+    @Nullable
+    public Model getItemIfLoaded(int position) {
+        return delegate.getItemIfLoaded(position);
+    }
+
+    /**
+     * Enables {@link PageCache}, which invokes {@link RecyclerView.Adapter#notifyItemRangeChanged(int, int)}
+     * when a page is loaded in background.
+     *
+     * @param pageSize The number of items in a page
+     * @param maxPages The max number of pages to keep
+     */
+    public void enablePageCache(@IntRange(from = 1) int pageSize, @IntRange(from = 1) int maxPages) {
+        delegate.enablePageCache(pageSize, maxPages, new PageCache.OnPageLoadedListener() {
+            @Override
+            public void onPageLoaded(int position, int count) {
+                int itemCount = getItemCount();
+                if (position < itemCount) {
+                    notifyItemRangeChanged(position, Math.min(count, itemCount - position));
+                }
+            }
+        });
+    }
+
     /**
      * Inserts a model into the table and invokes {@link RecyclerView.Adapter#notifyItemInserted(int)}
      *
@@ -156,4 +201,98 @@ public abstract class OrmaRecyclerViewAdapter<Model, VH extends RecyclerView.Vie
                     }
                 });
     }
+
+    /**
+     * Starts to follow changes of the relation's tables, including ones made by other code paths.
+     * Each time the tables are changed, primary keys and content hashes of the rows are reloaded and compared with
+     * the previous ones in a background thread, and then granular notifications like
+     * {@link RecyclerView.Adapter#notifyItemMoved(int, int)} are dispatched in the UI thread.
+     * Do not use it with the {@code *AsObservable()} methods of this class, which notify their own changes.
+     *
+     * Errors in loading rows are logged, and stop the updates.
+     *
+     * @return A {@link Subscription} to stop the updates
+     */
+    @NonNull
+    public Subscription startIncrementalUpdates() {
+        return startIncrementalUpdates(new Action1<Throwable>() {
+            @Override
+            public void call(Throwable e) {
+                Log.e(OrmaConnection.TAG, "incremental updates failed", e);
+            }
+        });
+    }
+
+    /**
+     * @param onError An error handler invoked in a background thread, after which the updates are stopped
+     * @return A {@link Subscription} to stop the updates
+     * @see #startIncrementalUpdates()
+     */
+    @NonNull
+    public Subscription startIncrementalUpdates(@NonNull final Action1<Throwable> onError) {
+        final Selector<Model, ?> selector = getRelation().selector();
+        return selector.observeDependentTableChanges(Selector.DEFAULT_OBSERVE_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)
+                .startWith(Collections.<String>emptySet())
+                .onBackpressureLatest()
+                .observeOn(Schedulers.io())
+                .map(new Func1<Set<String>, RowDiff>() {
+                    @Override
+                    public RowDiff call(Set<String> tableNames) {
+                        RowSnapshot next = RowSnapshot.load(selector);
+                        RowDiff diff = RowDiff.compute(snapshot, next);
+                        snapshot = next;
+                        return diff;
+                    }
+                })
+                .subscribe(new Action1<RowDiff>() {
+                    @Override
+                    public void call(final RowDiff diff) {
+                        final int itemCount = snapshot != null ? snapshot.size() : 0;
+                        runOnUiThreadSync(new Runnable() {
+                            @Override
+                            public void run() {
+                                dispatchRowDiff(diff, itemCount);
+                            }
+                        });
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable e) {
+                        // the next call of startIncrementalUpdates() starts with a reset
+                        snapshot = null;
+                        onError.call(e);
+                    }
+                });
+    }
+
+    void dispatchRowDiff(@NonNull RowDiff diff, int itemCount) {
+        if (!diff.isEmpty()) {
+            delegate.clearPageCache();
+        }
+        if (diff.isReset()) {
+            if (delegate.totalCount != itemCount) {
+                delegate.totalCount = itemCount;
+                notifyDataSetChanged();
+            }
+            return;
+        }
+
+        delegate.totalCount = itemCount;
+        for (RowDiff.Op op : diff.getOps()) {
+            switch (op.type) {
+                case RowDiff.INSERT:
+                    notifyItemInserted(op.position);
+                    break;
+                case RowDiff.REMOVE:
+                    notifyItemRemoved(op.position);
+                    break;
+                case RowDiff.MOVE:
+                    notifyItemMoved(op.position, op.toPosition);
+                    break;
+                case RowDiff.CHANGE:
+                    notifyItemChanged(op.position);
+                    break;
+            }
+        }
+    }
 }
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.widget;
+
+import com.github.gfx.android.orma.Relation;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.SimpleArrayMap;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A cache of fixed-size pages of a {@link Relation}, which replaces a {@code LIMIT position,1} query per row
+ * with a query per page. Pages in the scroll direction are prefetched in background, and pages distant from
+ * the last accessed one are evicted.
+ *
+ * @param <Model> An Orma model class
+ */
+public class PageCache<Model> {
+
+    public interface OnPageLoadedListener {
+
+        /**
+         * Called in the UI thread when a page loaded in background becomes available.
+         *
+         * @param position The position of the first item in the page
+         * @param count    The number of items in the page
+         */
+        void onPageLoaded(int position, int count);
+    }
+
+    public interface OnPageLoadFailedListener {
+
+        /**
+         * Called in the UI thread when loading a page in background fails. The page is loaded again when it is
+         * accessed next time.
+         *
+         * @param position  The position of the first item in the page
+         * @param count     The number of items in the page
+         * @param exception The exception thrown in loading the page
+         */
+        void onPageLoadFailed(int position, int count, @NonNull RuntimeException exception);
+    }
+
+    final Relation<Model, ?> relation;
+
+    final int pageSize;
+
+    final int maxPages;
+
+    final Handler handler = new Handler(Looper.getMainLooper());
+
+    final SimpleArrayMap<Integer, List<Model>> pages = new SimpleArrayMap<>();
+
+    final Set<Integer> loadingPages = new HashSet<>();
+
+    int lastPage = 0;
+
+    boolean forward = true;
+
+    /**
+     * Incremented by {@link #clear()} to discard pages being loaded.
+     */
+    int generation = 0;
+
+    @Nullable
+    OnPageLoadedListener onPageLoadedListener;
+
+    @Nullable
+    OnPageLoadFailedListener onPageLoadFailedListener;
+
+    /**
+     * @param relation The relation to load pages from
+     * @param pageSize The number of items in a page
+     * @param maxPages The max number of pages to keep, which should cover more than the visible window
+     */
+    public PageCache(@NonNull Relation<Model, ?> relation, @IntRange(from = 1) int pageSize,
+            @IntRange(from = 1) int maxPages) {
+        if (pageSize < 1 || maxPages < 1) {
+            throw new IllegalArgumentException("pageSize and maxPages must be positive");
+        }
+        this.relation = relation;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+    }
+
+    public void setOnPageLoadedListener(@Nullable OnPageLoadedListener onPageLoadedListener) {
+        this.onPageLoadedListener = onPageLoadedListener;
+    }
+
+    /**
+     * @param onPageLoadFailedListener A listener for failures in background, or {@code null} to rethrow them
+     *                                 in the UI thread
+     */
+    public void setOnPageLoadFailedListener(@Nullable OnPageLoadFailedListener onPageLoadFailedListener) {
+        this.onPageLoadFailedListener = onPageLoadFailedListener;
+    }
+
+    /**
+     * Returns the item at {@code position}, loading its page synchronously if it is not cached.
+     */
+    @NonNull
+    public Model get(@IntRange(from = 0) int position) {
+        int page = position / pageSize;
+        List<Model> models;
+        int currentGeneration;
+        synchronized (this) {
+            models = access(page);
+            currentGeneration = generation;
+        }
+        if (models == null) {
+            models = loadPage(page);
+            synchronized (this) {
+                putPage(page, models, currentGeneration);
+            }
+        }
+        prefetch(position);
+
+        int index = position % pageSize;
+        if (index < models.size()) {
+            return models.get(index);
+        } else {
+            // out of the range; let the relation throw a NoValueException
+            return relation.get(position);
+        }
+    }
+
+    /**
+     * Returns the item at {@code position} only if its page is cached. Otherwise, starts loading the page in
+     * background and returns {@code null}, so that the caller can show a placeholder until
+     * {@link OnPageLoadedListener#onPageLoaded(int, int)} is called.
+     */
+    @Nullable
+    public Model getIfLoaded(@IntRange(from = 0) int position) {
+        int page = position / pageSize;
+        List<Model> models;
+        synchronized (this) {
+            models = access(page);
+        }
+        if (models == null) {
+            loadPageAsync(page);
+            return null;
+        }
+        prefetch(position);
+
+        int index = position % pageSize;
+        return index < models.size() ? models.get(index) : null;
+    }
+
+    /**
+     * Discards all the pages, which must be called when the relation is modified.
+     */
+    public synchronized void clear() {
+        pages.clear();
+        loadingPages.clear();
+        generation++;
+    }
+
+    public synchronized int size() {
+        return pages.size();
+    }
+
+    public synchronized boolean isLoaded(int page) {
+        return pages.containsKey(page);
+    }
+
+    @Nullable
+    List<Model> access(int page) {
+        if (page > lastPage) {
+            forward = true;
+        } else if (page < lastPage) {
+            forward = false;
+        }
+        lastPage = page;
+        return pages.get(page);
+    }
+
+    void putPage(int page, @NonNull List<Model> models, int pageGeneration) {
+        if (pageGeneration != generation) {
+            return;
+        }
+        pages.put(page, models);
+
+        // evict the pages most distant from the last accessed one
+        while (pages.size() > maxPages) {
+            int farthestIndex = 0;
+            int farthestDistance = -1;
+            for (int i = 0; i < pages.size(); i++) {
+                int distance = Math.abs(pages.keyAt(i) - lastPage);
+                if (distance > farthestDistance) {
+                    farthestIndex = i;
+                    farthestDistance = distance;
+                }
+            }
+            pages.removeAt(farthestIndex);
+        }
+    }
+
+    /**
+     * Loads the next page in the scroll direction once the position passes the middle of its page.
+     */
+    void prefetch(int position) {
+        int page = position / pageSize;
+        int index = position % pageSize;
+        boolean forwardNow;
+        synchronized (this) {
+            forwardNow = forward;
+        }
+        if (forwardNow && index >= pageSize / 2) {
+            loadPageAsync(page + 1);
+        } else if (!forwardNow && index < pageSize / 2 && page > 0) {
+            loadPageAsync(page - 1);
+        }
+    }
+
+    void loadPageAsync(final int page) {
+        final int pageGeneration;
+        synchronized (this) {
+            if (pages.containsKey(page) || loadingPages.contains(page)) {
+                return;
+            }
+            loadingPages.add(page);
+            pageGeneration = generation;
+        }
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Model> models;
+                try {
+                    models = loadPage(page);
+                } catch (final RuntimeException e) {
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            OnPageLoadFailedListener listener = onPageLoadFailedListener;
+                            if (listener != null) {
+                                listener.onPageLoadFailed(page * pageSize, pageSize, e);
+                            } else {
+                                throw e;
+                            }
+                        }
+                    });
+                    return;
+                } finally {
+                    synchronized (PageCache.this) {
+                        if (pageGeneration == generation) {
+                            loadingPages.remove(page);
+                        }
+                    }
+                }
+                synchronized (PageCache.this) {
+                    if (pageGeneration != generation) {
+                        return;
+                    }
+                    putPage(page, models, pageGeneration);
+                }
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        OnPageLoadedListener listener = onPageLoadedListener;
+                        if (listener != null && !models.isEmpty()) {
+                            listener.onPageLoaded(page * pageSize, models.size());
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @NonNull
+    List<Model> loadPage(int page) {
+        return relation.selector()
+                .limit(pageSize)
+                .offset((long) page * pageSize)
+                .toList();
+    }
+}
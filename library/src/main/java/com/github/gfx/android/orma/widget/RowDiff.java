@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.widget;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The difference of two {@link RowSnapshot}s as a sequence of insertions, removals, moves and changes, which is
+ * applied in order, just like {@code RecyclerView.Adapter#notifyItem*()}.
+ */
+public class RowDiff {
+
+    public static final int INSERT = 1;
+
+    public static final int REMOVE = 2;
+
+    public static final int MOVE = 3;
+
+    public static final int CHANGE = 4;
+
+    public static class Op {
+
+        public final int type;
+
+        /**
+         * The position of the row. For {@link #MOVE}, the position from which the row moves.
+         */
+        public final int position;
+
+        /**
+         * The position to which the row moves for {@link #MOVE}, or {@code -1}.
+         */
+        public final int toPosition;
+
+        public Op(int type, int position, int toPosition) {
+            this.type = type;
+            this.position = position;
+            this.toPosition = toPosition;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Op)) {
+                return false;
+            }
+            Op op = (Op) o;
+            return type == op.type && position == op.position && toPosition == op.toPosition;
+        }
+
+        @Override
+        public int hashCode() {
+            return (type * 31 + position) * 31 + toPosition;
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case INSERT:
+                    return "Insert(" + position + ")";
+                case REMOVE:
+                    return "Remove(" + position + ")";
+                case MOVE:
+                    return "Move(" + position + " -> " + toPosition + ")";
+                default:
+                    return "Change(" + position + ")";
+            }
+        }
+    }
+
+    final List<Op> ops;
+
+    final boolean reset;
+
+    RowDiff(@NonNull List<Op> ops, boolean reset) {
+        this.ops = ops;
+        this.reset = reset;
+    }
+
+    /**
+     * Computes the difference by primary keys. Rows that have the same key but different content hashes are
+     * reported as {@link #CHANGE} at their new positions, after all the structural operations.
+     *
+     * @param prev The previous snapshot, or {@code null} if there is none
+     * @param next The current snapshot
+     * @return The difference, which is a reset if {@code prev} is {@code null}
+     */
+    @NonNull
+    public static RowDiff compute(@Nullable RowSnapshot prev, @NonNull RowSnapshot next) {
+        if (prev == null) {
+            return new RowDiff(Collections.<Op>emptyList(), true);
+        }
+
+        List<Op> ops = new ArrayList<>();
+
+        // removals go backward so that positions of preceding rows are not shifted
+        int[] nextPositions = new int[prev.keys.length];
+        for (int i = prev.keys.length - 1; i >= 0; i--) {
+            nextPositions[i] = next.indexOf(prev.keys[i]);
+            if (nextPositions[i] == -1) {
+                ops.add(new Op(REMOVE, i, -1));
+            }
+        }
+
+        // The surviving rows of prev that are not placed yet follow the placed rows in their original order,
+        // so a row's current position is the number of placed rows plus the unplaced ones before it in prev,
+        // which a Fenwick tree counts in O(log n) without shifting a list on each insertion or move.
+        int[] tree = new int[prev.keys.length + 1];
+        for (int i = 0; i < prev.keys.length; i++) {
+            if (nextPositions[i] != -1) {
+                addToTree(tree, i, 1);
+            }
+        }
+
+        // rows before i are already in place
+        for (int i = 0; i < next.keys.length; i++) {
+            int prevPosition = prev.indexOf(next.keys[i]);
+            if (prevPosition == -1) {
+                ops.add(new Op(INSERT, i, -1));
+            } else {
+                int unplacedBefore = sumOfTree(tree, prevPosition);
+                addToTree(tree, prevPosition, -1);
+                if (unplacedBefore != 0) {
+                    ops.add(new Op(MOVE, i + unplacedBefore, i));
+                }
+            }
+        }
+
+        for (int i = 0; i < next.keys.length; i++) {
+            int prevPosition = prev.indexOf(next.keys[i]);
+            if (prevPosition != -1 && prev.hashes[prevPosition] != next.hashes[i]) {
+                ops.add(new Op(CHANGE, i, -1));
+            }
+        }
+
+        return new RowDiff(ops, false);
+    }
+
+    static void addToTree(int[] tree, int index, int delta) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @return The sum of values before {@code index}
+     */
+    static int sumOfTree(int[] tree, int index) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    @NonNull
+    public List<Op> getOps() {
+        return ops;
+    }
+
+    /**
+     * @return {@code true} if the whole data set should be reloaded instead of applying {@link #getOps()}
+     */
+    public boolean isReset() {
+        return reset;
+    }
+
+    public boolean isEmpty() {
+        return !reset && ops.isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.widget;
+
+import com.github.gfx.android.orma.ColumnDef;
+import com.github.gfx.android.orma.Schema;
+import com.github.gfx.android.orma.Selector;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * The primary keys and the content hashes of rows of a {@link Selector}, which are compared by {@link RowDiff}.
+ * A content hash is computed from a change token of the table's columns, not from the models, so that loading
+ * a snapshot creates no model.
+ */
+public class RowSnapshot {
+
+    final Object[] keys;
+
+    final int[] hashes;
+
+    HashMap<Object, Integer> positions;
+
+    /**
+     * @param keys   Primary keys in the order of rows
+     * @param hashes Content hashes of rows
+     */
+    public RowSnapshot(@NonNull Object[] keys, @NonNull int[] hashes) {
+        if (keys.length != hashes.length) {
+            throw new IllegalArgumentException("keys.length != hashes.length");
+        }
+        this.keys = keys;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Loads a snapshot with a query that has the same conditions and orders as {@code selector}.
+     * Only two columns are fetched for each row: the primary key, or {@code _rowid_} for a model without
+     * {@code @PrimaryKey}, and a change token that concatenates the other columns with SQLite's {@code quote()}.
+     * {@code BLOB} columns are represented by their {@code length()} instead of hex dumps of their contents, so a
+     * blob changed to another one of the same length is not detected.
+     */
+    @NonNull
+    public static <Model> RowSnapshot load(@NonNull Selector<Model, ?> selector) {
+        Schema<Model> schema = selector.getSchema();
+        // the schema of a model without @PrimaryKey has a column def of _rowid_
+        ColumnDef<Model, ?> primaryKey = schema.getPrimaryKey();
+
+        StringBuilder token = new StringBuilder();
+        for (ColumnDef<Model, ?> column : schema.getColumns()) {
+            if (column == primaryKey) {
+                continue;
+            }
+            if (token.length() != 0) {
+                token.append(" || ',' || ");
+            }
+            if ("BLOB".equalsIgnoreCase(column.storageType)) {
+                token.append("quote(length(").append(column.getFullyQualifiedName()).append("))");
+            } else {
+                token.append("quote(").append(column.getFullyQualifiedName()).append(')');
+            }
+        }
+        if (token.length() == 0) {
+            token.append("NULL");
+        }
+
+        Cursor cursor = selector.executeWithColumns(primaryKey.getFullyQualifiedName(), token.toString());
+        try {
+            int count = cursor.getCount();
+            Object[] keys = new Object[count];
+            int[] hashes = new int[count];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                keys[i] = readValue(cursor, 0);
+                hashes[i] = hashValue(readValue(cursor, 1));
+            }
+            return new RowSnapshot(keys, hashes);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    static Object readValue(Cursor cursor, int index) {
+        switch (cursor.getType(index)) {
+            case Cursor.FIELD_TYPE_NULL:
+                return null;
+            case Cursor.FIELD_TYPE_INTEGER:
+                return cursor.getLong(index);
+            case Cursor.FIELD_TYPE_FLOAT:
+                return cursor.getDouble(index);
+            case Cursor.FIELD_TYPE_BLOB:
+                // a blob primary key is compared by its content
+                return ByteBuffer.wrap(cursor.getBlob(index));
+            default:
+                return cursor.getString(index);
+        }
+    }
+
+    static int hashValue(Object value) {
+        if (value == null) {
+            return 0;
+        } else {
+            return value.hashCode();
+        }
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return The position of {@code key}, or {@code -1} if it is not in the snapshot
+     */
+    public int indexOf(@NonNull Object key) {
+        if (positions == null) {
+            HashMap<Object, Integer> map = new HashMap<>(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                map.put(keys[i], i);
+            }
+            positions = map;
+        }
+        Integer position = positions.get(key);
+        return position != null ? position : -1;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.test;
+
+import com.github.gfx.android.orma.AccessThreadConstraint;
+import com.github.gfx.android.orma.TransactionTask;
+import com.github.gfx.android.orma.internal.CountCache;
+import com.github.gfx.android.orma.test.model.Author;
+import com.github.gfx.android.orma.test.model.OrmaDatabase;
+import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(AndroidJUnit4.class)
+public class CountCacheTest {
+
+    OrmaDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        db = OrmaFactory.builder()
+                .countCacheSize(10)
+                .build();
+
+        Author author = new Author();
+        author.name = "foo";
+        db.insertIntoAuthor(author);
+    }
+
+    @Test
+    public void reuseCounts() throws Exception {
+        CountCache cache = db.getConnection().getCountCache();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(db.selectFromAuthor().count(), is(1));
+            assertThat(db.selectFromAuthor().nameEq("foo").count(), is(1));
+            assertThat(db.selectFromAuthor().nameEq("bar").count(), is(0));
+        }
+        assertThat(cache.missCount(), is(3));
+        assertThat(cache.hitCount(), is(6));
+        assertThat(cache.size(), is(3));
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Test
+    public void countsOfReadersDuringTransaction() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        String name = "count_cache_test.db";
+        context.deleteDatabase(name);
+
+        final OrmaDatabase db = OrmaFactory.builder()
+                .name(name)
+                .writeAheadLogging(true)
+                .readConnectionPoolSize(2)
+                .countCacheSize(10)
+                .readOnMainThread(AccessThreadConstraint.NONE)
+                .writeOnMainThread(AccessThreadConstraint.NONE)
+                .build();
+        try {
+            Author author = new Author();
+            author.name = "foo";
+            db.insertIntoAuthor(author);
+
+            final AtomicInteger countInTransaction = new AtomicInteger(-1);
+            db.transactionSync(new TransactionTask() {
+                @Override
+                public void execute() throws Exception {
+                    Author author = new Author();
+                    author.name = "bar";
+                    db.insertIntoAuthor(author);
+
+                    // a reader thread sees and caches the count before the commit
+                    Thread reader = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            countInTransaction.set(db.selectFromAuthor().count());
+                        }
+                    });
+                    reader.start();
+                    reader.join();
+                }
+            });
+
+            assertThat(countInTransaction.get(), is(1));
+            assertThat(db.selectFromAuthor().count(), is(2));
+        } finally {
+            db.getConnection().close();
+            context.deleteDatabase(name);
+        }
+    }
+
+    @Test
+    public void invalidatedByWrites() throws Exception {
+        CountCache cache = db.getConnection().getCountCache();
+
+        assertThat(db.selectFromAuthor().count(), is(1));
+
+        Author author = new Author();
+        author.name = "bar";
+        db.insertIntoAuthor(author);
+        assertThat(cache.size(), is(0));
+        assertThat(db.selectFromAuthor().count(), is(2));
+
+        db.deleteFromAuthor().nameEq("foo").execute();
+        assertThat(db.selectFromAuthor().count(), is(1));
+
+        db.getConnection().execSQL("DELETE FROM " + db.selectFromAuthor().getSchema().getEscapedTableName());
+        assertThat(db.selectFromAuthor().count(), is(0));
+    }
+
+    @Test
+    public void bindArgsOfDifferentTypes() throws Exception {
+        assertThat(CountCache.buildKey("SELECT ?", new Object[]{"1"}),
+                is(not(CountCache.buildKey("SELECT ?", new Object[]{1L}))));
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        db = OrmaFactory.create();
+        CountCache cache = db.getConnection().getCountCache();
+
+        assertThat(db.selectFromAuthor().count(), is(0));
+        assertThat(db.selectFromAuthor().count(), is(0));
+
+        assertThat(cache.isEnabled(), is(false));
+        assertThat(cache.hitCount(), is(0));
+    }
+}
@@ -19,6 +19,7 @@ package com.github.gfx.android.orma.test;
 import com.github.gfx.android.orma.ModelFactory;
 import com.github.gfx.android.orma.SingleAssociation;
 import com.github.gfx.android.orma.test.model.Book;
+import com.github.gfx.android.orma.test.model.Book_Schema;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
 import com.github.gfx.android.orma.test.model.Publisher;
 import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
@@ -31,6 +32,8 @@ import android.database.sqlite.SQLiteException;
 import android.support.annotation.NonNull;
 import android.support.test.runner.AndroidJUnit4;
 
+import java.util.List;
+
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
@@ -96,6 +99,21 @@ public class ForeignKeysTest {
         assertThat(publisher.startedMonth, is(12));
     }
 
+    @Test
+    public void prefetch() throws Exception {
+        List<Book> books = db.selectFromBook().prefetch(Book_Schema.publisher).toList();
+        assertThat(books, hasSize(2));
+
+        // prefetched models are used without queries
+        db.updatePublisher().name("changed").execute();
+
+        for (Book book : books) {
+            assertThat(book.publisher.value().name, is("foo bar"));
+        }
+        assertThat(books.get(0).publisher.value(), is(sameInstance(books.get(1).publisher.value())));
+        assertThat(db.selectFromBook().value().publisher.value().name, is("changed"));
+    }
+
     @Test
     public void testHasManyRelation() throws Exception {
         final Publisher a = db.createPublisher(new ModelFactory<Publisher>() {
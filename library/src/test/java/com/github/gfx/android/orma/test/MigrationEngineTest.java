@@ -15,9 +15,13 @@
  */
 package com.github.gfx.android.orma.test;
 
+import com.github.gfx.android.orma.MigrationListener;
 import com.github.gfx.android.orma.OrmaConnection;
+import com.github.gfx.android.orma.exception.MigrationTimeoutException;
+import com.github.gfx.android.orma.exception.OrmaException;
 import com.github.gfx.android.orma.migration.ManualStepMigration;
 import com.github.gfx.android.orma.migration.MigrationEngine;
+import com.github.gfx.android.orma.migration.MigrationSchema;
 import com.github.gfx.android.orma.migration.OrmaMigration;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
 import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
@@ -27,10 +31,16 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
 import android.support.annotation.NonNull;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.MatcherAssert.*;
@@ -88,4 +98,142 @@ public class MigrationEngineTest {
 
         assertThat("No migration on initialization", value.get(), is(0));
     }
+
+    @Test
+    public void migrateInBackground() throws Exception {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch started = new CountDownLatch(1);
+
+        OrmaDatabase orma = OrmaFactory.builder()
+                .migrateInBackground(true)
+                .migrationListener(new MigrationListener() {
+                    @Override
+                    public void onMigrationStarted() {
+                        events.add("started");
+                        started.countDown();
+                    }
+
+                    @Override
+                    public void onMigrationFinished(long elapsedMillis) {
+                        events.add("finished");
+                    }
+
+                    @Override
+                    public void onMigrationFailed(@NonNull Throwable error, long elapsedMillis) {
+                        events.add("failed");
+                    }
+                })
+                .build();
+
+        assertThat("The migration starts without access", started.await(10, TimeUnit.SECONDS), is(true));
+
+        assertThat(orma.selectFromAuthor().count(), is(0));
+        assertThat(orma.getConnection().isMigrationCompleted(), is(true));
+        assertThat(events, contains("started", "finished"));
+    }
+
+    @Test(expected = MigrationTimeoutException.class)
+    public void migrateInBackgroundWithTimeout() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        OrmaDatabase orma = OrmaFactory.builder()
+                .migrationEngine(new MigrationEngine() {
+                    @NonNull
+                    @Override
+                    public String getTag() {
+                        return "Slow";
+                    }
+
+                    @Override
+                    public void start(@NonNull SQLiteDatabase db, @NonNull List<? extends MigrationSchema> schemas) {
+                        try {
+                            latch.await();
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                })
+                .migrateInBackground(true)
+                .migrationTimeoutMillis(10)
+                .build();
+
+        try {
+            orma.selectFromAuthor().count();
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void migrateInBackgroundWithError() throws Exception {
+        final RuntimeException error = new RuntimeException("error in migration");
+
+        OrmaDatabase orma = OrmaFactory.builder()
+                .migrationEngine(new MigrationEngine() {
+                    @NonNull
+                    @Override
+                    public String getTag() {
+                        return "Broken";
+                    }
+
+                    @Override
+                    public void start(@NonNull SQLiteDatabase db, @NonNull List<? extends MigrationSchema> schemas) {
+                        throw error;
+                    }
+                })
+                .migrateInBackground(true)
+                .build();
+
+        try {
+            orma.selectFromAuthor().count();
+            throw new AssertionError("not reached");
+        } catch (OrmaException e) {
+            assertThat(e.getCause(), is((Throwable) error));
+        }
+        assertThat(orma.getConnection().isMigrationCompleted(), is(false));
+    }
+
+    @Test
+    public void errorInMigrationIsReported() throws Exception {
+        final Error error = new Error("error in migration");
+        final List<Throwable> failures = new ArrayList<>();
+
+        OrmaDatabase orma = OrmaFactory.builder()
+                .migrationEngine(new MigrationEngine() {
+                    @NonNull
+                    @Override
+                    public String getTag() {
+                        return "Broken";
+                    }
+
+                    @Override
+                    public void start(@NonNull SQLiteDatabase db, @NonNull List<? extends MigrationSchema> schemas) {
+                        throw error;
+                    }
+                })
+                .migrationListener(new MigrationListener() {
+                    @Override
+                    public void onMigrationStarted() {
+                    }
+
+                    @Override
+                    public void onMigrationFinished(long elapsedMillis) {
+                    }
+
+                    @Override
+                    public void onMigrationFailed(@NonNull Throwable error, long elapsedMillis) {
+                        failures.add(error);
+                    }
+                })
+                .build();
+
+        try {
+            orma.selectFromAuthor().count();
+            throw new AssertionError("not reached");
+        } catch (Error e) {
+            assertThat(e, is(error));
+        }
+        assertThat(failures, contains((Throwable) error));
+        assertThat(orma.getConnection().isMigrationCompleted(), is(false));
+    }
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.test;
+
+import com.github.gfx.android.orma.ModelFactory;
+import com.github.gfx.android.orma.SingleAssociation;
+import com.github.gfx.android.orma.TransactionTask;
+import com.github.gfx.android.orma.exception.TransactionAbortException;
+import com.github.gfx.android.orma.internal.ModelCache;
+import com.github.gfx.android.orma.test.model.Book;
+import com.github.gfx.android.orma.test.model.OrmaDatabase;
+import com.github.gfx.android.orma.test.model.Publisher;
+import com.github.gfx.android.orma.test.model.PublisherSchema;
+import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(AndroidJUnit4.class)
+public class ModelCacheTest {
+
+    OrmaDatabase db;
+
+    Publisher publisher;
+
+    @Before
+    public void setUp() throws Exception {
+        db = OrmaFactory.builder()
+                .modelCacheSize(10)
+                .build();
+
+        publisher = db.createPublisher(new ModelFactory<Publisher>() {
+            @NonNull
+            @Override
+            public Publisher call() {
+                Publisher publisher = new Publisher();
+                publisher.name = "foo";
+                return publisher;
+            }
+        });
+
+        db.createBook(new ModelFactory<Book>() {
+            @NonNull
+            @Override
+            public Book call() {
+                Book book = new Book();
+                book.title = "today";
+                book.content = "milk, banana";
+                book.publisher = SingleAssociation.id(publisher.id);
+                return book;
+            }
+        });
+    }
+
+    @Test
+    public void singleAssociationHitsCache() throws Exception {
+        ModelCache cache = db.getConnection().getModelCache();
+        assertThat(db.selectFromPublisher().toList(), hasSize(1));
+
+        Book book = db.selectFromBook().value();
+        int hits = cache.hitCount();
+        assertThat(book.publisher.value().name, is("foo"));
+        assertThat(cache.hitCount(), is(hits + 1));
+        assertThat(cache.hitRate(), is(greaterThan(0.0)));
+    }
+
+    @Test
+    public void invalidatedByWrites() throws Exception {
+        ModelCache cache = db.getConnection().getModelCache();
+        db.selectFromPublisher().toList();
+        assertThat(cache.get(PublisherSchema.INSTANCE, publisher.id), is(notNullValue()));
+
+        db.updatePublisher().name("bar").execute();
+        assertThat(cache.size(), is(0));
+        assertThat(db.selectFromBook().value().publisher.value().name, is("bar"));
+
+        db.selectFromPublisher().toList();
+        db.deleteFromBook().execute();
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void primaryKeyQueryHitsCache() throws Exception {
+        ModelCache cache = db.getConnection().getModelCache();
+        assertThat(db.selectFromPublisher().idEq(publisher.id).value().name, is("foo"));
+
+        int hits = cache.hitCount();
+        assertThat(db.selectFromPublisher().idEq(publisher.id).value().name, is("foo"));
+        assertThat(cache.hitCount(), is(hits + 1));
+    }
+
+    @Test
+    public void notCachedAfterConcurrentInvalidation() throws Exception {
+        ModelCache cache = db.getConnection().getModelCache();
+        // a reader takes the generation and reads the row before a writer commits
+        int generation = cache.generation();
+        Publisher stale = db.selectFromPublisher().value();
+        cache.evictAll();
+
+        db.updatePublisher().name("bar").execute();
+        cache.put(PublisherSchema.INSTANCE, stale, generation);
+
+        assertThat(cache.get(PublisherSchema.INSTANCE, publisher.id), is(nullValue()));
+        assertThat(db.selectFromBook().value().publisher.value().name, is("bar"));
+    }
+
+    @Test
+    public void invalidatedByCommit() throws Exception {
+        final ModelCache cache = db.getConnection().getModelCache();
+        final Publisher stale = db.selectFromPublisher().value();
+
+        db.transactionSync(new TransactionTask() {
+            @Override
+            public void execute() throws Exception {
+                db.updatePublisher().name("bar").execute();
+                // a reader on another connection caches the row before the commit
+                cache.put(PublisherSchema.INSTANCE, stale, cache.generation());
+            }
+        });
+
+        assertThat(cache.get(PublisherSchema.INSTANCE, publisher.id), is(nullValue()));
+        assertThat(db.selectFromBook().value().publisher.value().name, is("bar"));
+    }
+
+    @Test
+    public void invalidatedByRollback() throws Exception {
+        final ModelCache cache = db.getConnection().getModelCache();
+        final Publisher uncommitted = db.selectFromPublisher().value();
+        uncommitted.name = "bar";
+
+        try {
+            db.transactionSync(new TransactionTask() {
+                @Override
+                public void execute() throws Exception {
+                    db.updatePublisher().name("bar").execute();
+                    // a reader on another connection caches the uncommitted row
+                    cache.put(PublisherSchema.INSTANCE, uncommitted, cache.generation());
+                    throw new Exception("rollback");
+                }
+            });
+        } catch (TransactionAbortException e) {
+            // expected
+        }
+
+        assertThat(cache.get(PublisherSchema.INSTANCE, publisher.id), is(nullValue()));
+        assertThat(db.selectFromBook().value().publisher.value().name, is("foo"));
+    }
+
+    @Test
+    public void eviction() throws Exception {
+        db = OrmaFactory.builder()
+                .modelCacheSize(1)
+                .build();
+        ModelCache cache = db.getConnection().getModelCache();
+
+        for (int i = 0; i < 3; i++) {
+            Publisher publisher = new Publisher();
+            publisher.name = "publisher " + i;
+            db.insertIntoPublisher(publisher);
+        }
+        db.selectFromPublisher().toList();
+
+        assertThat(cache.size(), is(1));
+        assertThat(cache.evictionCount(), is(2));
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        db = OrmaFactory.create();
+        ModelCache cache = db.getConnection().getModelCache();
+
+        db.selectFromPublisher().toList();
+
+        assertThat(cache.isEnabled(), is(false));
+        assertThat(cache.size(), is(0));
+        assertThat(cache.get(PublisherSchema.INSTANCE, publisher.id), is(nullValue()));
+    }
+}
@@ -23,17 +23,23 @@ import com.github.gfx.android.orma.test.model.Author;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
 import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
 import com.github.gfx.android.orma.widget.OrmaAdapter;
+import com.github.gfx.android.orma.widget.PageCache;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import android.content.Context;
+import android.database.sqlite.SQLiteException;
 import android.support.annotation.NonNull;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 import android.view.LayoutInflater;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
@@ -114,6 +120,50 @@ public class OrmaAdapterTest {
         assertThat(adapter.getItem(2).name, is("C"));
     }
 
+    @Test
+    public void testGetItemWithPageCache() throws Exception {
+        adapter.enablePageCache(2, 2, null);
+        assertThat(adapter.getItem(0).name, is("A"));
+        assertThat(adapter.getItem(1).name, is("B"));
+        assertThat(adapter.getItem(2).name, is("C"));
+    }
+
+    @Test
+    public void testPageCache() throws Exception {
+        PageCache<Author> cache = new PageCache<>(adapter.getRelation(), 2, 1);
+        assertThat(cache.get(0).name, is("A"));
+        assertThat(cache.get(2).name, is("C"));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.isLoaded(0), is(false));
+        assertThat(cache.isLoaded(1), is(true));
+        assertThat(cache.getIfLoaded(2).name, is("C"));
+
+        cache.clear();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.getIfLoaded(2), is(nullValue()));
+    }
+
+    @Test
+    public void testPageCacheWithLoadFailure() throws Exception {
+        OrmaDatabase orma = OrmaFactory.create();
+        PageCache<Author> cache = new PageCache<>(orma.relationOfAuthor().where("no_such_column = ?", 1), 2, 2);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<RuntimeException> error = new AtomicReference<>();
+        cache.setOnPageLoadFailedListener(new PageCache.OnPageLoadFailedListener() {
+            @Override
+            public void onPageLoadFailed(int position, int count, @NonNull RuntimeException exception) {
+                error.set(exception);
+                latch.countDown();
+            }
+        });
+
+        assertThat(cache.getIfLoaded(2), is(nullValue()));
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(error.get(), is(instanceOf(SQLiteException.class)));
+        assertThat(cache.isLoaded(1), is(false));
+    }
+
     @Test
     public void testGetItemAsObservable() throws Exception {
         assertThat(adapter.getItemAsObservable(0).toBlocking().value().name, is("A"));
@@ -17,6 +17,7 @@ package com.github.gfx.android.orma.test;
 
 import com.github.gfx.android.orma.AccessThreadConstraint;
 import com.github.gfx.android.orma.ModelFactory;
+import com.github.gfx.android.orma.TransactionTask;
 import com.github.gfx.android.orma.test.database_package_test.OrmaDatabaseInAnotherPackage;
 import com.github.gfx.android.orma.test.model.Author;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
@@ -141,6 +142,47 @@ public class OrmaDatabaseTest {
         assertThat(db.getConnection().getReadableDatabase().isWriteAheadLoggingEnabled(), is(false));
     }
 
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Test
+    public void testReadConnectionPool() throws Exception {
+        final OrmaDatabase db = OrmaDatabase.builder(getContext())
+                .name(NAME)
+                .writeAheadLogging(true)
+                .readConnectionPoolSize(2)
+                .readOnMainThread(AccessThreadConstraint.NONE)
+                .writeOnMainThread(AccessThreadConstraint.NONE)
+                .tryParsingSql(false)
+                .build();
+
+        Author author = new Author();
+        author.name = "Jack and Jill";
+        db.insertIntoAuthor(author);
+
+        SQLiteDatabase readOnlyDatabase = db.getConnection().getReadOnlyDatabase();
+        assertThat(readOnlyDatabase, is(not(db.getConnection().getReadableDatabase())));
+        assertThat(readOnlyDatabase.isReadOnly(), is(true));
+        assertThat(db.selectFromAuthor().count(), is(1));
+        assertThat(db.selectFromAuthor().value().name, is("Jack and Jill"));
+
+        db.transactionSync(new TransactionTask() {
+            @Override
+            public void execute() throws Exception {
+                Author author = new Author();
+                author.name = "Tom and Jerry";
+                db.insertIntoAuthor(author);
+
+                // uncommitted changes are visible in the transaction
+                assertThat(db.getConnection().getReadOnlyDatabase(), is(db.getConnection().getReadableDatabase()));
+                assertThat(db.selectFromAuthor().count(), is(2));
+            }
+        });
+        assertThat(db.selectFromAuthor().count(), is(2));
+
+        db.getConnection().close();
+        assertThat(readOnlyDatabase.isOpen(), is(false));
+        assertThat(db.getConnection().getReadableDatabase().isOpen(), is(false));
+    }
+
     @Test
     public void testDefaultForeignKeySetting() throws Exception {
         OrmaDatabase db = OrmaDatabase.builder(getContext())
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.test;
+
+import com.github.gfx.android.orma.QueryListener;
+import com.github.gfx.android.orma.SlowQuery;
+import com.github.gfx.android.orma.SlowQueryListener;
+import com.github.gfx.android.orma.test.model.Author;
+import com.github.gfx.android.orma.test.model.OrmaDatabase;
+import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.runner.AndroidJUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(AndroidJUnit4.class)
+public class QueryListenerTest {
+
+    OrmaDatabase db;
+
+    final List<String> queries = new ArrayList<>();
+
+    final List<Integer> rowCounts = new ArrayList<>();
+
+    final List<SlowQuery> slowQueries = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        db = OrmaFactory.builder()
+                .queryListener(new QueryListener() {
+                    @Override
+                    public void onQuery(@NonNull String sql, @Nullable Object[] bindArgs, long elapsedNanos,
+                            int rowCount) {
+                        assertThat(elapsedNanos, is(greaterThanOrEqualTo(0L)));
+                        queries.add(sql);
+                        rowCounts.add(rowCount);
+                    }
+                })
+                .slowQueryThresholdMillis(0)
+                .slowQueryListener(new SlowQueryListener() {
+                    @Override
+                    public void onSlowQuery(@NonNull SlowQuery slowQuery) {
+                        slowQueries.add(slowQuery);
+                    }
+                })
+                .build();
+
+        for (String name : new String[]{"foo", "bar"}) {
+            Author author = new Author();
+            author.name = name;
+            author.note = "note of " + name;
+            db.insertIntoAuthor(author);
+        }
+    }
+
+    void clear() {
+        queries.clear();
+        rowCounts.clear();
+        slowQueries.clear();
+    }
+
+    @Test
+    public void onQuery() throws Exception {
+        clear();
+
+        assertThat(db.selectFromAuthor().toList(), hasSize(2));
+
+        assertThat(queries, hasSize(1));
+        assertThat(queries.get(0), startsWith("SELECT "));
+        assertThat(rowCounts.get(0), is(2));
+    }
+
+    @Test
+    public void onQueryForWrites() throws Exception {
+        clear();
+
+        assertThat(db.deleteFromAuthor().nameEq("foo").execute(), is(1));
+
+        assertThat(queries, hasSize(1));
+        assertThat(queries.get(0), startsWith("DELETE "));
+        assertThat(rowCounts.get(0), is(1));
+    }
+
+    @Test
+    public void slowQueryWithFullScan() throws Exception {
+        clear();
+
+        db.selectFromAuthor().where("note LIKE ?", "%foo%").toList();
+
+        assertThat(slowQueries, hasSize(1));
+        SlowQuery slowQuery = slowQueries.get(0);
+        assertThat(slowQuery.queryPlan, is(not(empty())));
+        assertThat(slowQuery.hasFullScan(), is(true));
+        assertThat(slowQuery.fullScannedTables, contains("Author"));
+    }
+
+    @Test
+    public void slowQueryWithIndex() throws Exception {
+        clear();
+
+        db.selectFromAuthor().noteEq("note of foo").toList();
+
+        assertThat(slowQueries, hasSize(1));
+        assertThat(slowQueries.get(0).hasFullScan(), is(false));
+    }
+
+    @Test
+    public void failureOfSlowQueryListener() throws Exception {
+        OrmaDatabase db = OrmaFactory.builder()
+                .slowQueryThresholdMillis(0)
+                .slowQueryListener(new SlowQueryListener() {
+                    @Override
+                    public void onSlowQuery(@NonNull SlowQuery slowQuery) {
+                        throw new IllegalStateException("failure in a listener");
+                    }
+                })
+                .build();
+
+        Author author = new Author();
+        author.name = "baz";
+        db.insertIntoAuthor(author);
+
+        assertThat(db.selectFromAuthor().nameEq("baz").count(), is(1));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.test;
+
+import com.github.gfx.android.orma.LatencyHistogram;
+import com.github.gfx.android.orma.QueryMetrics;
+import com.github.gfx.android.orma.TransactionTask;
+import com.github.gfx.android.orma.test.model.Author;
+import com.github.gfx.android.orma.test.model.OrmaDatabase;
+import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(AndroidJUnit4.class)
+public class QueryMetricsTest {
+
+    OrmaDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        db = OrmaFactory.builder()
+                .collectMetrics(true)
+                .build();
+    }
+
+    @Test
+    public void statements() throws Exception {
+        QueryMetrics metrics = db.getConnection().getMetrics();
+        assertThat(metrics, is(notNullValue()));
+        metrics.reset();
+
+        Author author = new Author();
+        author.name = "foo";
+        db.insertIntoAuthor(author);
+        db.selectFromAuthor().toList();
+        db.selectFromAuthor().toList();
+        db.deleteFromAuthor().execute();
+
+        QueryMetrics.Snapshot snapshot = metrics.snapshot();
+        assertThat(snapshot.get("Author", QueryMetrics.Operation.INSERT).latency.count, is(1L));
+        assertThat(snapshot.get("Author", QueryMetrics.Operation.SELECT).latency.count, is(2L));
+        assertThat(snapshot.get("Author", QueryMetrics.Operation.DELETE).latency.count, is(1L));
+        assertThat(snapshot.get("Author", QueryMetrics.Operation.UPDATE), is(nullValue()));
+    }
+
+    @Test
+    public void transactions() throws Exception {
+        QueryMetrics metrics = db.getConnection().getMetrics();
+        assertThat(metrics, is(notNullValue()));
+        metrics.reset();
+
+        db.transactionSync(new TransactionTask() {
+            @Override
+            public void execute() throws Exception {
+                Author author = new Author();
+                author.name = "foo";
+                db.insertIntoAuthor(author);
+            }
+        });
+
+        QueryMetrics.Snapshot snapshot = metrics.snapshot();
+        assertThat(snapshot.transactionHoldTimes.count, is(1L));
+        assertThat(snapshot.lockWaitTimes.count, is(1L));
+    }
+
+    @Test
+    public void histogram() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100; i++) {
+            histogram.record(i * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.count, is(100L));
+        assertThat(snapshot.maxNanos, is(100000L));
+        assertThat(snapshot.getMeanNanos(), is(50500L));
+        assertThat((double) snapshot.getValueAtPercentile(50), is(closeTo(50000, 50000 * 0.125)));
+        assertThat((double) snapshot.getValueAtPercentile(99), is(closeTo(99000, 99000 * 0.125)));
+        assertThat(snapshot.getValueAtPercentile(100), is(100000L));
+    }
+}
@@ -17,8 +17,13 @@ package com.github.gfx.android.orma.test;
 
 import com.github.gfx.android.orma.Inserter;
 import com.github.gfx.android.orma.ModelFactory;
+import com.github.gfx.android.orma.OrmaConnection;
+import com.github.gfx.android.orma.PreparedSelector;
+import com.github.gfx.android.orma.ProjectedRow;
+import com.github.gfx.android.orma.RowIdRange;
 import com.github.gfx.android.orma.SingleAssociation;
 import com.github.gfx.android.orma.TransactionTask;
+import com.github.gfx.android.orma.Upserter;
 import com.github.gfx.android.orma.annotation.OnConflict;
 import com.github.gfx.android.orma.exception.InvalidStatementException;
 import com.github.gfx.android.orma.exception.NoValueException;
@@ -26,7 +31,10 @@ import com.github.gfx.android.orma.exception.TransactionAbortException;
 import com.github.gfx.android.orma.test.model.Author;
 import com.github.gfx.android.orma.test.model.Author_Selector;
 import com.github.gfx.android.orma.test.model.Book;
+import com.github.gfx.android.orma.test.model.Book_Schema;
 import com.github.gfx.android.orma.test.model.Book_Selector;
+import com.github.gfx.android.orma.test.model.ModelWithSyntheticNames;
+import com.github.gfx.android.orma.test.model.ModelWithSyntheticNames_Schema;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
 import com.github.gfx.android.orma.test.model.Publisher;
 import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
@@ -41,6 +49,8 @@ import android.support.annotation.NonNull;
 import android.support.test.runner.AndroidJUnit4;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -164,6 +174,176 @@ public class QueryTest {
         assertThat(books.get(1).content, is("apple"));
     }
 
+    @Test
+    public void iterableWithKeysetPagination() throws Exception {
+        db.createBook(new ModelFactory<Book>() {
+            @NonNull
+            @Override
+            public Book call() {
+                Book book = new Book();
+                book.title = "today";
+                book.content = "coffee";
+                book.inPrint = true;
+                book.publisher = SingleAssociation.id(publisher.id);
+                return book;
+            }
+        });
+
+        List<String> contents = new ArrayList<>();
+        for (Book book : db.selectFromBook().keysetPagination(true).iterationBatchSize(1)) {
+            contents.add(book.content);
+        }
+        assertThat(contents, contains("milk, banana", "apple", "coffee"));
+
+        contents.clear();
+        for (Book book : db.selectFromBook().orderByTitleDesc().keysetPagination(true).iterationBatchSize(2)) {
+            contents.add(book.content);
+        }
+        assertThat(contents, contains("milk, banana", "coffee", "apple"));
+
+        contents.clear();
+        for (Book book : db.selectFromBook()
+                .titleEq("friday")
+                .or()
+                .where("content = ?", "coffee")
+                .orderByTitleAsc()
+                .keysetPagination(true)
+                .iterationBatchSize(1)) {
+            contents.add(book.content);
+        }
+        assertThat(contents, contains("apple", "coffee"));
+    }
+
+    @Test
+    public void iterableWithoutCount() throws Exception {
+        List<String> titles = new ArrayList<>();
+        for (Book book : db.selectFromBook().countInIteration(false).iterationBatchSize(1)) {
+            titles.add(book.title);
+        }
+        assertThat(titles, contains("today", "friday"));
+
+        titles.clear();
+        for (Book book : db.selectFromBook().countInIteration(false).iterationBatchSize(2)) {
+            titles.add(book.title);
+        }
+        assertThat(titles, contains("today", "friday"));
+
+        Iterator<Book> iterator = db.selectFromBook().titleEq("nothing").countInIteration(false).iterator();
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    public void isEmpty() throws Exception {
+        assertThat(db.selectFromBook().isEmpty(), is(false));
+        assertThat(db.selectFromBook().titleEq("friday").isEmpty(), is(false));
+        assertThat(db.selectFromBook().titleEq("nothing").isEmpty(), is(true));
+    }
+
+    @Test
+    public void iterableWithKeysetPaginationForEmptyResult() throws Exception {
+        Iterator<Book> iterator = db.selectFromBook().titleEq("nothing").keysetPagination(true).iterator();
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    public void cloneSelector() throws Exception {
+        Book_Selector selector = db.selectFromBook().where("content IS NOT NULL").orderByTitleAsc().limit(1);
+        List<Book> books = selector.clone().toList();
+        assertThat(books, hasSize(1));
+        assertThat(books.get(0).title, is("friday"));
+    }
+
+    @Test
+    public void typedBindArgs() throws Exception {
+        assertThat(db.selectFromBook().where("typeof(?) = 'integer'", 1).count(), is(2));
+        assertThat(db.selectFromBook().where("typeof(?) = 'integer'", true).count(), is(2));
+        assertThat(db.selectFromBook().where("typeof(?) = 'real'", 1.5).count(), is(2));
+        assertThat(db.selectFromBook().where("typeof(?) = 'text'", "foo").count(), is(2));
+        assertThat(db.selectFromBook().where("typeof(?) = 'blob'", new byte[]{1}).count(), is(2));
+        assertThat(db.selectFromBook().where("typeof(?) = 'integer'", 1).toList(), hasSize(2));
+
+        assertThat(db.updateBook().where("typeof(?) = 'integer'", 1).content("updated").execute(), is(2));
+        assertThat(db.deleteFromBook().where("typeof(?) = 'integer'", 1).execute(), is(2));
+    }
+
+    @Test
+    public void preparedSelector() throws Exception {
+        Book_Selector selector = db.selectFromBook().where("title = ?", "today");
+        PreparedSelector<Book> prepared = selector.prepare();
+        selector.where("content IS NULL");
+
+        assertThat(prepared.count(), is(1));
+        assertThat(prepared.isEmpty(), is(false));
+        assertThat(prepared.toList(), hasSize(1));
+        assertThat(prepared.valueOrNull().title, is("today"));
+
+        prepared.bindArgs("friday");
+        assertThat(prepared.count(), is(1));
+        assertThat(prepared.valueOrNull().title, is("friday"));
+
+        prepared.bindArgs("unknown");
+        assertThat(prepared.isEmpty(), is(true));
+        assertThat(prepared.valueOrNull(), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void preparedSelectorWithWrongBindArgs() throws Exception {
+        db.selectFromBook().where("title = ?", "today").prepare().bindArgs("a", "b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void updateWithoutValues() throws Exception {
+        db.updateBook().titleEq("today").execute();
+    }
+
+    @Test
+    public void projection() throws Exception {
+        List<Book> books = db.selectFromBook()
+                .project(Book_Schema.bookId, Book_Schema.title)
+                .orderByTitleAsc()
+                .toList();
+        assertThat(books, hasSize(2));
+        assertThat(books.get(0).title, is("friday"));
+        assertThat(books.get(0).content, is(nullValue()));
+        assertThat(books.get(0).publisher, is(nullValue()));
+        assertThat(books.get(1).title, is("today"));
+
+        Book book = db.selectFromBook().project(Book_Schema.content).titleEq("today").value();
+        assertThat(book.title, is(nullValue()));
+        assertThat(book.content, is("milk, banana"));
+    }
+
+    @Test
+    public void projectionToRows() throws Exception {
+        List<ProjectedRow<Book>> rows = db.selectFromBook()
+                .project(Book_Schema.title, Book_Schema.inPrint)
+                .orderByTitleAsc()
+                .toRows();
+        assertThat(rows, hasSize(2));
+        assertThat(rows.get(0).get(Book_Schema.title), is("friday"));
+        assertThat(rows.get(0).get(Book_Schema.inPrint), is(false));
+        assertThat(rows.get(1).get(Book_Schema.title), is("today"));
+        assertThat(rows.get(1).get(Book_Schema.inPrint), is(true));
+    }
+
+    @Test
+    public void projectionWithSetterConstructor() throws Exception {
+        db.insertIntoModelWithSyntheticNames(new ModelWithSyntheticNames(1, 2, "foo", "bar"));
+
+        ModelWithSyntheticNames model = db.selectFromModelWithSyntheticNames()
+                .project(ModelWithSyntheticNames_Schema.i, ModelWithSyntheticNames_Schema.columns)
+                .value();
+        assertThat(model.i, is(1L));
+        assertThat(model.size, is(0L));
+        assertThat(model.column, is(nullValue()));
+        assertThat(model.columns, is("bar"));
+    }
+
+    @Test(expected = InvalidStatementException.class)
+    public void toRowsWithoutProjection() throws Exception {
+        db.selectFromBook().toRows();
+    }
+
     @Test
     public void value() throws Exception {
         Book book = db.selectFromBook().value();
@@ -463,6 +643,21 @@ public class QueryTest {
         assertThat(book.content, is("modified"));
     }
 
+    @Test
+    public void updateAll() throws Exception {
+        List<Book> books = db.selectFromBook().orderByTitleAsc().toList();
+        for (Book book : books) {
+            book.content = "modified: " + book.title;
+        }
+
+        int count = db.updateAllBook(books);
+
+        assertThat(count, is(2));
+        assertThat(db.selectFromBook().titleEq("today").value().content, is("modified: today"));
+        assertThat(db.selectFromBook().titleEq("friday").value().content, is("modified: friday"));
+        assertThat(db.selectFromBook().titleEq("friday").value().publisher.getId(), is(publisher.id));
+    }
+
     @Test
     public void delete() throws Exception {
         int result = db.deleteFromBook()
@@ -474,6 +669,30 @@ public class QueryTest {
         assertThat(db.selectFromBook().value().title, is("friday"));
     }
 
+    @Test
+    public void deleteByPrimaryKeys() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            Book book = new Book();
+            book.title = "book " + i;
+            book.content = "content";
+            book.publisher = SingleAssociation.id(publisher.id);
+            books.add(book);
+        }
+        db.prepareInsertIntoBook().executeAll(books);
+
+        List<Long> bookIds = new ArrayList<>();
+        for (Book book : db.selectFromBook().where("content = ?", "content")) {
+            bookIds.add(book.bookId);
+        }
+        bookIds.add(-1L); // not found
+
+        int result = db.deleteFromBookByPrimaryKeys(bookIds);
+
+        assertThat(result, is(1500));
+        assertThat(db.selectFromBook().count(), is(2));
+    }
+
     @Test
     public void deleteViaRelation() throws Exception {
         int result = db.relationOfBook()
@@ -655,6 +874,53 @@ public class QueryTest {
         assertThat(db.selectFromBook().bookIdEq(book.bookId).value().content, is("modified"));
     }
 
+    @Test
+    public void upserter() throws Exception {
+        Book book = db.selectFromBook().titleEq("today").value();
+        book.content = "modified";
+
+        Book newBook = new Book();
+        newBook.bookId = book.bookId + 100;
+        newBook.title = "tomorrow";
+        newBook.content = "coffee";
+        newBook.publisher = SingleAssociation.id(publisher.id);
+
+        Upserter<Book> upserter = db.prepareUpsertIntoBook();
+        assertThat(upserter.executeAll(Arrays.asList(book, newBook)), is(2));
+
+        assertThat(db.selectFromBook().count(), is(3));
+        assertThat("The row is updated in place", db.selectFromBook().titleEq("today").value().bookId, is(book.bookId));
+        assertThat(db.selectFromBook().titleEq("today").value().content, is("modified"));
+        assertThat(db.selectFromBook().titleEq("tomorrow").value().bookId, is(newBook.bookId));
+    }
+
+    @Test
+    public void upserterWithUpdateAndInsert() throws Exception {
+        Book book = db.selectFromBook().titleEq("today").value();
+        book.content = "modified";
+
+        Book newBook = new Book();
+        newBook.bookId = book.bookId + 100;
+        newBook.title = "tomorrow";
+        newBook.content = "coffee";
+        newBook.publisher = SingleAssociation.id(publisher.id);
+
+        Upserter<Book> upserter = new Upserter<>(db.getConnection(), db.selectFromBook().getSchema(), false);
+        upserter.execute(book);
+        upserter.execute(newBook);
+
+        assertThat(db.selectFromBook().count(), is(3));
+        assertThat(db.selectFromBook().titleEq("today").value().content, is("modified"));
+        assertThat(db.selectFromBook().titleEq("tomorrow").value().content, is("coffee"));
+    }
+
+    @Test
+    public void parseSQLiteVersion() throws Exception {
+        assertThat(OrmaConnection.parseSQLiteVersion("3.24.0"), is(3024000));
+        assertThat(OrmaConnection.parseSQLiteVersion("3.8.10.2"), is(3008010));
+        assertThat(OrmaConnection.parseSQLiteVersion("3.9"), is(3009000));
+    }
+
     @Test
     public void inserterExecuteAll() throws Exception {
         Inserter<Book> inserter = db.prepareInsertIntoBook();
@@ -663,6 +929,52 @@ public class QueryTest {
         assertThat(db.selectFromBook().count(), is(7));
     }
 
+    @Test
+    public void inserterExecuteAllInChunks() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Book book = new Book();
+            book.title = "friday";
+            book.content = "apple" + i;
+            book.publisher = SingleAssociation.id(publisher.id);
+            books.add(book);
+        }
+
+        RowIdRange range = db.prepareInsertIntoBook().executeAll(books);
+
+        assertThat(db.selectFromBook().count(), is(1002));
+        assertThat(range.isFirstKnown(), is(true));
+        assertThat(range.last - range.first, is(999L));
+        assertThat(db.selectFromBook().bookIdEq(range.first).value().content, is("apple0"));
+        assertThat(db.selectFromBook().bookIdEq(range.last).value().content, is("apple999"));
+    }
+
+    @Test
+    public void inserterExecuteAllWithExplicitIds() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book();
+            book.bookId = 100 - i * 10;
+            book.title = "friday";
+            book.content = "apple" + i;
+            book.publisher = SingleAssociation.id(publisher.id);
+            books.add(book);
+        }
+
+        RowIdRange range = db.prepareInsertIntoBook(OnConflict.NONE, false).executeAll(books);
+
+        assertThat(range.isFirstKnown(), is(false));
+        assertThat(range.last, is(80L));
+    }
+
+    @Test
+    public void inserterExecuteAllWithEmptyList() throws Exception {
+        RowIdRange range = db.prepareInsertIntoBook().executeAll(new ArrayList<Book>());
+
+        assertThat(range.isEmpty(), is(true));
+        assertThat(db.selectFromBook().count(), is(2));
+    }
+
     @Test
     public void inserterExecuteModelFactory() throws Exception {
         Inserter<Book> inserter = db.prepareInsertIntoBook();
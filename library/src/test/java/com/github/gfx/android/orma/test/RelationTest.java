@@ -34,7 +34,9 @@ import org.junit.runner.RunWith;
 import android.support.annotation.NonNull;
 import android.support.test.runner.AndroidJUnit4;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -155,6 +157,15 @@ public class RelationTest {
         assertThat(rel.indexOf(find("C")), is(0));
     }
 
+    @Test
+    public void iterator() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (ModelWithDate model : rel().orderByTimeDesc()) {
+            names.add(model.name);
+        }
+        assertThat(names, contains("C", "B", "A"));
+    }
+
     @Test
     public void getInAsc() throws Exception {
         Relation<ModelWithDate, ?> rel = rel().orderByNameAsc();
@@ -292,6 +303,7 @@ public class RelationTest {
         assertThat(rel.get(2).id, is(300L));
     }
 
+    @SuppressWarnings("deprecation")
     @Test
     public void upserter() throws Exception {
         ModelWithDate model = rel().selector().nameEq("A").value();
@@ -302,6 +314,17 @@ public class RelationTest {
         assertThat(rel().nameEq(model.name).selector().value().note, is("modified"));
     }
 
+    @Test
+    public void prepareUpsert() throws Exception {
+        ModelWithDate model = rel().selector().nameEq("A").value();
+        model.note = "modified";
+
+        rel().prepareUpsert().execute(model);
+
+        assertThat(rel().nameEq(model.name).selector().value().note, is("modified"));
+        assertThat(rel().count(), is(3));
+    }
+
     @Test
     public void iterable() throws Exception {
         Relation<ModelWithDate, ?> rel = rel().orderByNameAsc();
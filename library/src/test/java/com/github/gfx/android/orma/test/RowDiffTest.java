@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.test;
+
+import com.github.gfx.android.orma.test.model.Author;
+import com.github.gfx.android.orma.test.model.ModelWithBlob;
+import com.github.gfx.android.orma.test.model.ModelWithDefaults;
+import com.github.gfx.android.orma.test.model.OrmaDatabase;
+import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
+import com.github.gfx.android.orma.widget.RowDiff;
+import com.github.gfx.android.orma.widget.RowSnapshot;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(AndroidJUnit4.class)
+public class RowDiffTest {
+
+    static RowSnapshot snapshot(Object[] keys, int... hashes) {
+        return new RowSnapshot(keys, hashes);
+    }
+
+    /**
+     * Applies structural operations to the keys of {@code prev}, just like a RecyclerView does.
+     */
+    static List<Object> apply(Object[] prev, RowDiff diff) {
+        List<Object> list = new ArrayList<>(Arrays.asList(prev));
+        for (RowDiff.Op op : diff.getOps()) {
+            switch (op.type) {
+                case RowDiff.INSERT:
+                    list.add(op.position, "inserted");
+                    break;
+                case RowDiff.REMOVE:
+                    list.remove(op.position);
+                    break;
+                case RowDiff.MOVE:
+                    list.add(op.toPosition, list.remove(op.position));
+                    break;
+            }
+        }
+        return list;
+    }
+
+    @Test
+    public void reset() throws Exception {
+        RowDiff diff = RowDiff.compute(null, snapshot(new Object[]{1L}, 0));
+        assertThat(diff.isReset(), is(true));
+    }
+
+    @Test
+    public void noChanges() throws Exception {
+        Object[] keys = {1L, 2L, 3L};
+        RowDiff diff = RowDiff.compute(snapshot(keys, 1, 2, 3), snapshot(keys, 1, 2, 3));
+        assertThat(diff.isEmpty(), is(true));
+    }
+
+    @Test
+    public void insertAndRemove() throws Exception {
+        RowDiff diff = RowDiff.compute(
+                snapshot(new Object[]{1L, 2L, 3L}, 1, 2, 3),
+                snapshot(new Object[]{1L, 4L, 3L}, 1, 4, 3));
+        assertThat(diff.getOps(), contains(
+                new RowDiff.Op(RowDiff.REMOVE, 1, -1),
+                new RowDiff.Op(RowDiff.INSERT, 1, -1)));
+    }
+
+    @Test
+    public void move() throws Exception {
+        Object[] prev = {1L, 2L, 3L, 4L};
+        Object[] next = {4L, 1L, 2L, 3L};
+        RowDiff diff = RowDiff.compute(snapshot(prev, 1, 2, 3, 4), snapshot(next, 1, 2, 3, 4));
+        assertThat(diff.getOps(), contains(new RowDiff.Op(RowDiff.MOVE, 3, 0)));
+        assertThat(apply(prev, diff), contains(next));
+    }
+
+    @Test
+    public void change() throws Exception {
+        Object[] prev = {1L, 2L, 3L};
+        Object[] next = {3L, 2L, 1L};
+        RowDiff diff = RowDiff.compute(snapshot(prev, 1, 2, 3), snapshot(next, 3, 20, 1));
+        assertThat(apply(prev, diff), contains(next));
+        assertThat(diff.getOps(), hasItem(new RowDiff.Op(RowDiff.CHANGE, 1, -1)));
+    }
+
+    @Test
+    public void mixed() throws Exception {
+        Object[] prev = {"a", "b", "c", "d", "e"};
+        Object[] next = {"e", "x", "c", "a", "y"};
+        RowDiff diff = RowDiff.compute(snapshot(prev, 0, 0, 0, 0, 0), snapshot(next, 0, 0, 0, 0, 0));
+        assertThat(apply(prev, diff), contains((Object) "e", "inserted", "c", "a", "inserted"));
+    }
+
+    @Test
+    public void loadSnapshot() throws Exception {
+        OrmaDatabase db = OrmaFactory.create();
+        for (String name : new String[]{"A", "B"}) {
+            Author author = new Author();
+            author.name = name;
+            db.insertIntoAuthor(author);
+        }
+
+        RowSnapshot prev = RowSnapshot.load(db.selectFromAuthor().orderByNameAsc());
+        assertThat(prev.size(), is(2));
+        assertThat(prev.indexOf("B"), is(1));
+
+        db.updateAuthor().nameEq("B").note("updated").execute();
+        RowSnapshot next = RowSnapshot.load(db.selectFromAuthor().orderByNameAsc());
+
+        assertThat(RowDiff.compute(prev, next).getOps(), contains(new RowDiff.Op(RowDiff.CHANGE, 1, -1)));
+    }
+
+    @Test
+    public void loadSnapshotOfModelWithoutPrimaryKey() throws Exception {
+        OrmaDatabase db = OrmaFactory.create();
+        for (String s : new String[]{"a", "b", "c"}) {
+            ModelWithDefaults model = new ModelWithDefaults();
+            model.s = s;
+            db.insertIntoModelWithDefaults(model);
+        }
+
+        RowSnapshot prev = RowSnapshot.load(db.selectFromModelWithDefaults());
+        assertThat(prev.size(), is(3));
+        assertThat(prev.indexOf(1L), is(0));
+        assertThat(prev.indexOf(3L), is(2));
+
+        db.updateModelWithDefaults().where("s = ?", "c").i(20).execute();
+        RowSnapshot next = RowSnapshot.load(db.selectFromModelWithDefaults());
+
+        assertThat(RowDiff.compute(prev, next).getOps(), contains(new RowDiff.Op(RowDiff.CHANGE, 2, -1)));
+    }
+
+    @Test
+    public void loadSnapshotOfModelWithBlob() throws Exception {
+        OrmaDatabase db = OrmaFactory.create();
+        for (byte[] blob : new byte[][]{{1}, {1, 2}}) {
+            ModelWithBlob model = new ModelWithBlob();
+            model.blob = blob;
+            db.insertIntoModelWithBlob(model);
+        }
+
+        RowSnapshot prev = RowSnapshot.load(db.selectFromModelWithBlob());
+        assertThat(prev.size(), is(2));
+
+        db.updateModelWithBlob().where("length(blob) = ?", 1).blob(new byte[]{1, 2, 3}).execute();
+        RowSnapshot next = RowSnapshot.load(db.selectFromModelWithBlob());
+
+        assertThat(RowDiff.compute(prev, next).getOps(), contains(new RowDiff.Op(RowDiff.CHANGE, 0, -1)));
+    }
+
+    @Test
+    public void reverseManyRows() throws Exception {
+        int size = 2000;
+        Object[] prev = new Object[size];
+        Object[] next = new Object[size];
+        int[] hashes = new int[size];
+        for (int i = 0; i < size; i++) {
+            prev[i] = (long) i;
+            next[i] = (long) (size - i - 1);
+        }
+        RowDiff diff = RowDiff.compute(snapshot(prev, hashes), snapshot(next, hashes));
+        assertThat(diff.getOps().size(), is(size - 1));
+        assertThat(apply(prev, diff), contains(next));
+    }
+}
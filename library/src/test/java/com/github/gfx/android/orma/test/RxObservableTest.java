@@ -17,9 +17,13 @@ package com.github.gfx.android.orma.test;
 
 import com.github.gfx.android.orma.ModelFactory;
 import com.github.gfx.android.orma.SingleAssociation;
+import com.github.gfx.android.orma.TransactionTask;
+import com.github.gfx.android.orma.exception.TransactionAbortException;
 import com.github.gfx.android.orma.test.model.Book;
+import com.github.gfx.android.orma.test.model.Book_Schema;
 import com.github.gfx.android.orma.test.model.OrmaDatabase;
 import com.github.gfx.android.orma.test.model.Publisher;
+import com.github.gfx.android.orma.test.model.PublisherSchema;
 import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
 
 import org.junit.Before;
@@ -32,12 +36,15 @@ import android.support.test.runner.AndroidJUnit4;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import rx.functions.Func1;
 import rx.observers.TestSubscriber;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
 
 @RunWith(AndroidJUnit4.class)
 public class RxObservableTest {
@@ -195,4 +202,64 @@ public class RxObservableTest {
         testSubscriber.assertReceivedOnNext(Collections.singletonList("today"));
         testSubscriber.assertError(AbortInMapException.class);
     }
+
+    @Test
+    public void observeTableChanges() throws Exception {
+        TestSubscriber<Set<String>> testSubscriber = TestSubscriber.create();
+        db.getConnection().observeTableChanges().subscribe(testSubscriber);
+
+        db.transactionSync(new TransactionTask() {
+            @Override
+            public void execute() throws Exception {
+                db.updateBook().content("updated").execute();
+                db.updateBook().inPrint(false).execute();
+                db.updatePublisher().startedYear(2016).execute();
+            }
+        });
+        db.deleteFromBook().titleEq("today").execute();
+
+        testSubscriber.assertValueCount(2);
+        assertThat(testSubscriber.getOnNextEvents().get(0), containsInAnyOrder(
+                Book_Schema.INSTANCE.getTableName(), PublisherSchema.INSTANCE.getTableName()));
+        assertThat(testSubscriber.getOnNextEvents().get(1), contains(Book_Schema.INSTANCE.getTableName()));
+    }
+
+    @Test
+    public void observeTableChangesDiscardedByRollback() throws Exception {
+        TestSubscriber<Set<String>> testSubscriber = TestSubscriber.create();
+        db.getConnection().observeTableChanges().subscribe(testSubscriber);
+
+        try {
+            db.transactionSync(new TransactionTask() {
+                @Override
+                public void execute() throws Exception {
+                    db.deleteFromBook().execute();
+                    throw new RuntimeException("abort!");
+                }
+            });
+            fail("not reached");
+        } catch (TransactionAbortException e) {
+            assertThat(e.getCause().getMessage(), is("abort!"));
+        }
+
+        testSubscriber.assertNoValues();
+        assertThat(db.selectFromBook().count(), is(2));
+    }
+
+    @Test
+    public void observeSelector() throws Exception {
+        TestSubscriber<List<Book>> testSubscriber = TestSubscriber.create();
+        db.selectFromBook()
+                .observe(0, TimeUnit.MILLISECONDS)
+                .take(2)
+                .subscribe(testSubscriber);
+
+        db.updatePublisher().startedYear(2016).execute(); // not a dependent table
+        db.deleteFromBook().titleEq("today").execute();
+
+        testSubscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        testSubscriber.assertCompleted();
+        testSubscriber.assertValueCount(2);
+        assertThat(testSubscriber.getOnNextEvents().get(1), hasSize(1));
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.test;
+
+import com.github.gfx.android.orma.internal.StatementCache;
+import com.github.gfx.android.orma.test.model.Author;
+import com.github.gfx.android.orma.test.model.OrmaDatabase;
+import com.github.gfx.android.orma.test.toolbox.OrmaFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(AndroidJUnit4.class)
+public class StatementCacheTest {
+
+    OrmaDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        db = OrmaFactory.create();
+
+        Author author = new Author();
+        author.name = "foo";
+        db.insertIntoAuthor(author);
+    }
+
+    @Test
+    public void reuseStatements() throws Exception {
+        StatementCache cache = db.getConnection().getStatementCache();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(db.selectFromAuthor().nameEq("foo").count(), is(1));
+        }
+        assertThat(cache.missCount(), is(1));
+        assertThat(cache.hitCount(), is(9));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void updateAndDelete() throws Exception {
+        StatementCache cache = db.getConnection().getStatementCache();
+
+        assertThat(db.updateAuthor().nameEq("foo").note("bar").execute(), is(1));
+        assertThat(db.updateAuthor().nameEq("foo").note("baz").execute(), is(1));
+        assertThat(db.selectFromAuthor().value().note, is("baz"));
+
+        assertThat(db.deleteFromAuthor().nameEq("bar").execute(), is(0));
+        assertThat(db.deleteFromAuthor().nameEq("foo").execute(), is(1));
+
+        assertThat(cache.hitCount(), is(2));
+        assertThat(cache.missCount(), is(2));
+    }
+
+    @Test
+    public void eviction() throws Exception {
+        db = OrmaFactory.builder()
+                .statementCacheSize(1)
+                .build();
+        StatementCache cache = db.getConnection().getStatementCache();
+
+        db.selectFromAuthor().nameEq("foo").count();
+        db.selectFromAuthor().noteEq("foo").count();
+        db.selectFromAuthor().nameEq("foo").count();
+
+        assertThat(cache.missCount(), is(3));
+        assertThat(cache.evictionCount(), is(2));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        db = OrmaFactory.builder()
+                .statementCacheSize(0)
+                .build();
+        StatementCache cache = db.getConnection().getStatementCache();
+
+        assertThat(db.selectFromAuthor().count(), is(0));
+        assertThat(db.selectFromAuthor().count(), is(0));
+
+        assertThat(cache.hitCount(), is(0));
+        assertThat(cache.size(), is(0));
+    }
+}
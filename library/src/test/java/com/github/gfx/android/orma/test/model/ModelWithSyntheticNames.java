@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.test.model;
+
+import com.github.gfx.android.orma.annotation.Column;
+import com.github.gfx.android.orma.annotation.PrimaryKey;
+import com.github.gfx.android.orma.annotation.Setter;
+import com.github.gfx.android.orma.annotation.Table;
+
+/**
+ * Columns named after locals of the generated code.
+ */
+@Table
+public class ModelWithSyntheticNames {
+
+    @PrimaryKey
+    @Column
+    public final long i;
+
+    @Column
+    public final long size;
+
+    @Column
+    public final String column;
+
+    @Column
+    public final String columns;
+
+    @Setter
+    public ModelWithSyntheticNames(long i, long size, String column, String columns) {
+        this.i = i;
+        this.size = size;
+        this.column = column;
+        this.columns = columns;
+    }
+}
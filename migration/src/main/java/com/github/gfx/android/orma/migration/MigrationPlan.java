@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.migration;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A dry run of {@link SchemaDiffMigration}: the statements it would run on a database, grouped into steps with
+ * their estimated costs. Building a plan only reads the database.
+ *
+ * @see SchemaDiffMigration#plan(SQLiteDatabase, List)
+ */
+public class MigrationPlan {
+
+    public enum Kind {
+        CREATE_TABLE(false),
+        ADD_COLUMN(false),
+        CREATE_INDEX(false),
+        DROP_INDEX(false),
+        RECREATE_TABLE(true),
+        OTHER(false);
+
+        final boolean expensive;
+
+        Kind(boolean expensive) {
+            this.expensive = expensive;
+        }
+
+        /**
+         * @return {@code true} if the cost is proportional to the size of the table, rather than to its schema
+         */
+        public boolean isExpensive() {
+            return expensive;
+        }
+    }
+
+    public static class Step {
+
+        @NonNull
+        final Kind kind;
+
+        @Nullable
+        final String tableName;
+
+        final List<String> statements = new ArrayList<>();
+
+        long rowCount;
+
+        long pageCount;
+
+        Step(@NonNull Kind kind, @Nullable String tableName, @NonNull String statement) {
+            this.kind = kind;
+            this.tableName = tableName;
+            this.statements.add(statement);
+        }
+
+        @NonNull
+        public Kind getKind() {
+            return kind;
+        }
+
+        public boolean isExpensive() {
+            return kind.isExpensive();
+        }
+
+        /**
+         * @return The unquoted name of the target table, or {@code null} if unknown, e.g. for {@code DROP INDEX}
+         */
+        @Nullable
+        public String getTableName() {
+            return tableName;
+        }
+
+        @NonNull
+        public List<String> getStatements() {
+            return statements;
+        }
+
+        /**
+         * @return The number of rows copied or indexed in this step
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return The estimated number of pages read in this step, which is also about the number of pages written
+         * for {@link Kind#RECREATE_TABLE}
+         */
+        public long getPageCount() {
+            return pageCount;
+        }
+
+        @Override
+        public String toString() {
+            return kind + (tableName != null ? " " + tableName : "")
+                    + " (" + statements.size() + " statements, " + rowCount + " rows, ~" + pageCount + " pages)";
+        }
+    }
+
+    /**
+     * A table name, which may be quoted and include spaces.
+     */
+    static final String TABLE_NAME_REGEX = "(`[^`]+`|\"[^\"]+\"|\\S+)";
+
+    static final Pattern CREATE_TABLE_PATTERN = Pattern.compile(
+            "CREATE TABLE (?:IF NOT EXISTS )?" + TABLE_NAME_REGEX, Pattern.CASE_INSENSITIVE);
+
+    static final Pattern CREATE_INDEX_PATTERN = Pattern.compile(
+            "CREATE (?:UNIQUE )?INDEX .+? ON " + TABLE_NAME_REGEX, Pattern.CASE_INSENSITIVE);
+
+    static final Pattern DROP_INDEX_PATTERN = Pattern.compile("DROP INDEX ", Pattern.CASE_INSENSITIVE);
+
+    static final Pattern ADD_COLUMN_PATTERN = Pattern.compile("ALTER TABLE " + TABLE_NAME_REGEX + " ADD COLUMN ",
+            Pattern.CASE_INSENSITIVE);
+
+    final List<Step> steps;
+
+    final long databasePageCount;
+
+    final long pageSize;
+
+    MigrationPlan(@NonNull List<Step> steps, long databasePageCount, long pageSize) {
+        this.steps = Collections.unmodifiableList(steps);
+        this.databasePageCount = databasePageCount;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @param rebuilds Table rebuilds whose statements are included in {@code statements}
+     */
+    @NonNull
+    static MigrationPlan create(@NonNull SQLiteDatabase db, @NonNull List<String> statements,
+            @NonNull Collection<SqliteDdlBuilder.TableRebuild> rebuilds) {
+        Map<String, SqliteDdlBuilder.TableRebuild> rebuildsByCreateStatement = new HashMap<>();
+        for (SqliteDdlBuilder.TableRebuild rebuild : rebuilds) {
+            rebuildsByCreateStatement.put(rebuild.getCreateTempTableStatement(), rebuild);
+        }
+
+        List<Step> steps = new ArrayList<>();
+
+        Step recreating = null;
+        SqliteDdlBuilder.TableRebuild rebuild = null;
+        for (String statement : statements) {
+            if (recreating != null) {
+                recreating.statements.add(statement);
+                if (statement.equals(rebuild.getRenameTableStatement())) {
+                    recreating = null;
+                }
+                continue;
+            }
+
+            Matcher m;
+            Step step;
+            if ((rebuild = rebuildsByCreateStatement.get(statement)) != null) {
+                step = recreating = new Step(Kind.RECREATE_TABLE, rebuild.getToTableName().getUnquotedToken(),
+                        statement);
+            } else if ((m = CREATE_TABLE_PATTERN.matcher(statement)).lookingAt()) {
+                step = new Step(Kind.CREATE_TABLE, SqliteDdlBuilder.ensureNotEscaped(m.group(1)), statement);
+            } else if ((m = CREATE_INDEX_PATTERN.matcher(statement)).lookingAt()) {
+                step = new Step(Kind.CREATE_INDEX, SqliteDdlBuilder.ensureNotEscaped(m.group(1)), statement);
+            } else if (DROP_INDEX_PATTERN.matcher(statement).lookingAt()) {
+                step = new Step(Kind.DROP_INDEX, null, statement);
+            } else if ((m = ADD_COLUMN_PATTERN.matcher(statement)).lookingAt()) {
+                step = new Step(Kind.ADD_COLUMN, SqliteDdlBuilder.ensureNotEscaped(m.group(1)), statement);
+            } else {
+                step = new Step(Kind.OTHER, null, statement);
+            }
+            steps.add(step);
+        }
+
+        Estimator estimator = new Estimator(db);
+        for (Step step : steps) {
+            if ((step.kind == Kind.RECREATE_TABLE || step.kind == Kind.CREATE_INDEX)
+                    && estimator.tableExists(step.tableName)) {
+                step.rowCount = estimator.countRows(step.tableName);
+                step.pageCount = estimator.estimatePages(step.tableName);
+            }
+        }
+        return new MigrationPlan(steps, estimator.getPageCount(), estimator.getPageSize());
+    }
+
+    @NonNull
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    @NonNull
+    public List<String> getStatements() {
+        List<String> statements = new ArrayList<>();
+        for (Step step : steps) {
+            statements.addAll(step.statements);
+        }
+        return statements;
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    @NonNull
+    public List<Step> getExpensiveSteps() {
+        List<Step> expensiveSteps = new ArrayList<>();
+        for (Step step : steps) {
+            if (step.isExpensive()) {
+                expensiveSteps.add(step);
+            }
+        }
+        return expensiveSteps;
+    }
+
+    public boolean isExpensive() {
+        return !getExpensiveSteps().isEmpty();
+    }
+
+    /**
+     * @return The number of rows copied by {@link Kind#RECREATE_TABLE} steps
+     */
+    public long getRowCountToCopy() {
+        long rowCount = 0;
+        for (Step step : getExpensiveSteps()) {
+            rowCount += step.rowCount;
+        }
+        return rowCount;
+    }
+
+    /**
+     * @return The estimated number of pages read by all the steps
+     */
+    public long getPageCount() {
+        long pageCount = 0;
+        for (Step step : steps) {
+            pageCount += step.pageCount;
+        }
+        return pageCount;
+    }
+
+    /**
+     * @return {@code PRAGMA page_count} of the database
+     */
+    public long getDatabasePageCount() {
+        return databasePageCount;
+    }
+
+    /**
+     * @return {@code PRAGMA page_size} of the database
+     */
+    public long getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("MigrationPlan: ")
+                .append(steps.size()).append(" steps, ")
+                .append(getExpensiveSteps().size()).append(" expensive, ")
+                .append(getRowCountToCopy()).append(" rows to copy, ~")
+                .append(getPageCount()).append('/').append(databasePageCount).append(" pages");
+        for (Step step : steps) {
+            sb.append("\n  ").append(step);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Counts rows and estimates pages of tables, memoizing them. The number of pages of a table comes from the
+     * {@code dbstat} virtual table if it is available, or is estimated from its share of all the rows otherwise.
+     */
+    static class Estimator {
+
+        final SQLiteDatabase db;
+
+        final Map<String, Long> rowCounts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        Map<String, SQLiteMaster> tables;
+
+        long totalRowCount = -1;
+
+        long pageCount = -1;
+
+        Boolean dbstatAvailable;
+
+        Estimator(SQLiteDatabase db) {
+            this.db = db;
+        }
+
+        boolean tableExists(String tableName) {
+            return getTables().containsKey(tableName);
+        }
+
+        Map<String, SQLiteMaster> getTables() {
+            if (tables == null) {
+                tables = SQLiteMaster.loadTables(db);
+            }
+            return tables;
+        }
+
+        long countRows(String tableName) {
+            Long rowCount = rowCounts.get(tableName);
+            if (rowCount == null) {
+                rowCount = DatabaseUtils.queryNumEntries(db, SqliteDdlBuilder.ensureEscaped(tableName));
+                rowCounts.put(tableName, rowCount);
+            }
+            return rowCount;
+        }
+
+        long getPageCount() {
+            if (pageCount == -1) {
+                pageCount = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+            }
+            return pageCount;
+        }
+
+        long getPageSize() {
+            return DatabaseUtils.longForQuery(db, "PRAGMA page_size", null);
+        }
+
+        long estimatePages(String tableName) {
+            if (dbstatAvailable == null || dbstatAvailable) {
+                try {
+                    long pages = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM dbstat WHERE name = ?",
+                            new String[]{tableName});
+                    dbstatAvailable = true;
+                    return pages;
+                } catch (SQLiteException e) {
+                    // SQLITE_ENABLE_DBSTAT_VTAB is not enabled
+                    dbstatAvailable = false;
+                }
+            }
+
+            long totalRowCount = countAllRows();
+            if (totalRowCount == 0) {
+                return 0;
+            }
+            return Math.max(1, getPageCount() * countRows(tableName) / totalRowCount);
+        }
+
+        long countAllRows() {
+            if (totalRowCount == -1) {
+                totalRowCount = 0;
+                for (SQLiteMaster table : getTables().values()) {
+                    if ("table".equals(table.type) && !table.tableName.startsWith("sqlite_")) {
+                        totalRowCount += countRows(table.tableName);
+                    }
+                }
+            }
+            return totalRowCount;
+        }
+    }
+}
@@ -18,7 +18,7 @@ package com.github.gfx.android.orma.migration;
 import com.github.gfx.android.orma.migration.sqliteparser.CreateIndexStatement;
 import com.github.gfx.android.orma.migration.sqliteparser.CreateTableStatement;
 import com.github.gfx.android.orma.migration.sqliteparser.SQLiteComponent;
-import com.github.gfx.android.orma.migration.sqliteparser.SQLiteParserUtils;
+import com.github.gfx.android.orma.migration.sqliteparser.SQLiteParserCache;
 
 import org.json.JSONArray;
 
@@ -28,6 +28,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
@@ -36,13 +37,17 @@ import android.util.Pair;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressLint("Assert")
 public class SchemaDiffMigration extends AbstractMigrationEngine {
@@ -80,6 +85,22 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
             + kArgs + " TEXT NULL, "
             + kCreatedTimestamp + " DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP)";
 
+    /**
+     * The default number of rows copied in a transaction while a table is rebuilt.
+     */
+    public static final int DEFAULT_REBUILD_CHUNK_SIZE = 10000;
+
+    /**
+     * The path of an in-memory database, which is never cached because each connection has its own database.
+     */
+    static final String MEMORY_DB_PATH = ":memory:";
+
+    /**
+     * Database files verified in this process, mapping {@code "$path:$schemaHash"} to {@code PRAGMA schema_version}
+     * at the time. Any DDL increments {@code schema_version}, which invalidates the entry.
+     */
+    static final Map<String, Integer> verifiedSchemaVersions = new ConcurrentHashMap<>();
+
     final String versionName;
 
     final int versionCode;
@@ -88,8 +109,17 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
 
     final SqliteDdlBuilder util = new SqliteDdlBuilder();
 
+    /**
+     * Table rebuilds built by {@link #tableDiff(String, String)}, mapping their copy statements to themselves, so
+     * that {@link #executeStatements(SQLiteDatabase, List)} and {@link #plan(SQLiteDatabase, List)} find them in
+     * the statements without parsing.
+     */
+    final Map<String, SqliteDdlBuilder.TableRebuild> tableRebuilds = new HashMap<>();
+
     private boolean tableCreated = false;
 
+    private int rebuildChunkSize = DEFAULT_REBUILD_CHUNK_SIZE;
+
     public SchemaDiffMigration(@NonNull Context context, @NonNull String schemaHash, @NonNull TraceListener traceListener) {
         super(traceListener);
         this.versionName = extractVersionName(context);
@@ -101,10 +131,25 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
         this(context, schemaHash, extractDebuggable(context) ? TraceListener.LOGCAT : TraceListener.EMPTY);
     }
 
+    /**
+     * Sets the number of rows copied in a transaction when a table is rebuilt. Rows are moved from the old table in
+     * chunks, each of which is committed, so the rebuild keeps the disk usage and resumes after the process is killed.
+     * A table that gets new constraints, e.g. {@code UNIQUE}, is still rebuilt in a transaction.
+     *
+     * @param rebuildChunkSize The number of rows, or {@code 0} to copy all the rows in the migration transaction;
+     *                         rebuilds interrupted before are resumed in either case
+     */
+    public void setRebuildChunkSize(int rebuildChunkSize) {
+        if (rebuildChunkSize < 0) {
+            throw new IllegalArgumentException("rebuildChunkSize < 0");
+        }
+        this.rebuildChunkSize = rebuildChunkSize;
+    }
+
     static private Map<CreateIndexStatement, String> parseIndexes(Collection<String> indexes) {
         Map<CreateIndexStatement, String> parsedIndexPairs = new LinkedHashMap<>();
         for (String createIndexStatement : indexes) {
-            parsedIndexPairs.put(SQLiteParserUtils.parseIntoCreateIndexStatement(createIndexStatement), createIndexStatement);
+            parsedIndexPairs.put(SQLiteParserCache.parseIntoCreateIndexStatement(createIndexStatement), createIndexStatement);
         }
         return parsedIndexPairs;
     }
@@ -145,7 +190,18 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
 
     @Override
     public void start(@NonNull SQLiteDatabase db, @NonNull List<? extends MigrationSchema> schemas) {
+        String verificationKey = buildVerificationKey(db);
+        if (verificationKey != null) {
+            Integer verifiedSchemaVersion = verifiedSchemaVersions.get(verificationKey);
+            if (verifiedSchemaVersion != null && verifiedSchemaVersion == fetchDbVersion(db)) {
+                trace("skip checking the schema verified in this process");
+                return;
+            }
+        }
+
         if (isSchemaChanged(db)) {
+            resumeTableRebuilds(db);
+
             Map<String, ? extends MigrationSchema> masterSchemas = loadMetadata(db, schemas);
             List<String> statements = diffAll(masterSchemas, schemas);
             if (statements.isEmpty()) {
@@ -155,6 +211,41 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
                 executeStatements(db, statements);
             }
         }
+
+        if (verificationKey != null) {
+            verifiedSchemaVersions.put(verificationKey, fetchDbVersion(db));
+        }
+    }
+
+    @Nullable
+    String buildVerificationKey(@NonNull SQLiteDatabase db) {
+        String path = db.getPath();
+        if (path == null || MEMORY_DB_PATH.equals(path)) {
+            return null;
+        }
+        return path + ":" + schemaHash;
+    }
+
+    /**
+     * Forgets the schemas verified in this process, which makes the next {@link #start(SQLiteDatabase, List)} check
+     * the migration history again.
+     */
+    public static void clearVerifiedSchemas() {
+        verifiedSchemaVersions.clear();
+    }
+
+    /**
+     * Computes the statements that the migration would run on {@code db}, regardless of the migration history,
+     * without running them. This only reads the database, so it is safe to run on a copy of a user's database.
+     *
+     * @param db      a database to migrate
+     * @param schemas target table definitions
+     * @return the migration steps with their estimated costs
+     */
+    @NonNull
+    public MigrationPlan plan(@NonNull SQLiteDatabase db, @NonNull List<? extends MigrationSchema> schemas) {
+        List<String> statements = diffAll(loadMetadata(db, schemas), schemas);
+        return MigrationPlan.create(db, statements, tableRebuilds.values());
     }
 
     public boolean isSchemaChanged(SQLiteDatabase db) {
@@ -225,18 +316,24 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
                 List<String> tableDiffStatements = tableDiff(srcSchema.getCreateTableStatement(),
                         dstSchema.getCreateTableStatement());
 
-                if (tableDiffStatements.isEmpty()) {
-                    statements.addAll(indexDiff(srcSchema.getCreateIndexStatements(), dstSchema.getCreateIndexStatements()));
-                } else {
+                if (isRecreatingTable(tableDiffStatements)) {
                     // This table needs re-create, where all the indexes are also dropped.
                     statements.addAll(tableDiffStatements);
                     statements.addAll(dstSchema.getCreateIndexStatements());
+                } else {
+                    // ALTER TABLE ... ADD COLUMN keeps the indexes
+                    statements.addAll(tableDiffStatements);
+                    statements.addAll(indexDiff(srcSchema.getCreateIndexStatements(), dstSchema.getCreateIndexStatements()));
                 }
             }
         }
         return statements;
     }
 
+    boolean isRecreatingTable(List<String> tableDiffStatements) {
+        return tableDiffStatements.size() > 1 && tableRebuilds.containsKey(tableDiffStatements.get(1));
+    }
+
     /**
      * @param srcIndexes Set of "CREATED INDEX" statements which the DB has
      * @param dstIndexes Set of "CREATE INDEX" statements which the code has
@@ -244,6 +341,20 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
      */
     @NonNull
     public List<String> indexDiff(@NonNull Collection<String> srcIndexes, @NonNull Collection<String> dstIndexes) {
+        // Identical statements are identical indexes, so only the rest are parsed.
+        // Note that SQLite keeps the statement text as it is given, and Orma always generates the same text.
+        Set<String> unchangedIndexes = new HashSet<>(srcIndexes);
+        unchangedIndexes.retainAll(dstIndexes);
+        if (unchangedIndexes.size() == srcIndexes.size() && unchangedIndexes.size() == dstIndexes.size()) {
+            return Collections.emptyList();
+        }
+        if (!unchangedIndexes.isEmpty()) {
+            srcIndexes = new ArrayList<>(srcIndexes);
+            srcIndexes.removeAll(unchangedIndexes);
+            dstIndexes = new ArrayList<>(dstIndexes);
+            dstIndexes.removeAll(unchangedIndexes);
+        }
+
         LinkedHashMap<CreateIndexStatement, String> unionIndexes = new LinkedHashMap<>();
 
         Map<CreateIndexStatement, String> srcIndexesPairs = parseIndexes(srcIndexes);
@@ -274,8 +385,8 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
             return Collections.emptyList();
         }
 
-        CreateTableStatement fromTable = SQLiteParserUtils.parseIntoCreateTableStatement(from);
-        CreateTableStatement toTable = SQLiteParserUtils.parseIntoCreateTableStatement(to);
+        CreateTableStatement fromTable = SQLiteParserCache.parseIntoCreateTableStatement(from);
+        CreateTableStatement toTable = SQLiteParserCache.parseIntoCreateTableStatement(to);
 
         Set<CreateTableStatement.ColumnDef> toColumns = new LinkedHashSet<>();
         Set<SQLiteComponent.Name> toColumnNames = new LinkedHashSet<>();
@@ -298,20 +409,84 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
             }
         }
 
+        if (intersectionColumns.size() == fromTable.getColumns().size() &&
+                intersectionColumns.size() < toTable.getColumns().size() &&
+                fromTable.getConstraints().equals(toTable.getConstraints())) {
+            List<CreateTableStatement.ColumnDef> addedColumns = new ArrayList<>();
+            for (CreateTableStatement.ColumnDef column : toTable.getColumns()) {
+                if (!intersectionColumns.contains(column)) {
+                    addedColumns.add(column);
+                }
+            }
+            if (canAddColumns(addedColumns)) {
+                trace("from: %s", from);
+                trace("to:   %s", to);
+                return util.buildAddColumns(fromTable.getTableName(), addedColumns);
+            }
+        }
+
         if (intersectionColumns.size() != toTable.getColumns().size() ||
                 intersectionColumns.size() != fromTable.getColumns().size() ||
                 !fromTable.getConstraints().equals(toTable.getConstraints())) {
             trace("from: %s", from);
             trace("to:   %s", to);
-            return util.buildRecreateTable(fromTable, toTable, intersectionColumnNames, intersectionColumnNames);
+            SqliteDdlBuilder.TableRebuild rebuild = util.buildRecreateTable(fromTable, toTable,
+                    intersectionColumnNames, intersectionColumnNames);
+            tableRebuilds.put(rebuild.getCopyStatement(), rebuild);
+            return rebuild.getStatements();
         } else {
             return Collections.emptyList();
         }
     }
 
+    /**
+     * @return {@code true} if all the columns can be added by {@code ALTER TABLE ... ADD COLUMN}
+     * @see <a href="https://www.sqlite.org/lang_altertable.html">ALTER TABLE</a>
+     */
+    static boolean canAddColumns(List<CreateTableStatement.ColumnDef> columns) {
+        for (CreateTableStatement.ColumnDef column : columns) {
+            boolean nullable = true;
+            boolean references = false;
+            String defaultExpr = null;
+            for (CreateTableStatement.ColumnDef.Constraint constraint : column.getConstraints()) {
+                if (constraint.isPrimaryKey()) {
+                    return false;
+                }
+                if (!constraint.isNullable()) {
+                    nullable = false;
+                }
+                if (constraint.getDefaultExpr() != null) {
+                    defaultExpr = constraint.getDefaultExpr();
+                }
+                for (CharSequence token : constraint.getTokens()) {
+                    if ("UNIQUE".equalsIgnoreCase(token.toString())) {
+                        return false;
+                    } else if ("REFERENCES".equalsIgnoreCase(token.toString())) {
+                        references = true;
+                    }
+                }
+            }
+
+            boolean nullDefault = defaultExpr == null || "NULL".equalsIgnoreCase(defaultExpr);
+            if (!nullable && nullDefault) {
+                // NOT NULL requires a non-null default value
+                return false;
+            }
+            if (references && !nullDefault) {
+                // REFERENCES requires the default value to be NULL
+                return false;
+            }
+            if (defaultExpr != null && (defaultExpr.startsWith("(")
+                    || defaultExpr.toUpperCase(Locale.US).startsWith("CURRENT_"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @NonNull
     public String buildDropIndexStatement(String createIndexStatement) {
-        return buildDropIndexStatement(SQLiteParserUtils.parseIntoCreateIndexStatement(createIndexStatement));
+        return buildDropIndexStatement(SQLiteParserCache.parseIntoCreateIndexStatement(createIndexStatement));
     }
 
     @NonNull
@@ -337,6 +512,71 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
             return;
         }
 
+        List<String> pendingStatements = new ArrayList<>();
+        for (String statement : statements) {
+            SqliteDdlBuilder.TableRebuild rebuild = tableRebuilds.get(statement);
+            if (rebuildChunkSize != 0 && rebuild != null && canCopyInChunks(db, pendingStatements, rebuild)) {
+                // the temp table must be committed before rows are copied in chunks
+                executeInTransaction(db, pendingStatements, Collections.<String>emptyList());
+                pendingStatements.clear();
+                copyInChunks(db, statement, rebuild.getFromTableName().toString());
+            } else {
+                pendingStatements.add(statement);
+            }
+        }
+        // steps are saved at last, so that an interrupted migration is detected by isSchemaChanged()
+        executeInTransaction(db, pendingStatements, statements);
+    }
+
+    /**
+     * A chunked copy must not fail halfway, or rows are left split between the old table and the temp table, and
+     * {@link #resumeTableRebuilds(SQLiteDatabase)} fails forever. So rows are copied in chunks only if the temp table
+     * adds no constraints that existing rows may violate; otherwise they are copied in the migration transaction,
+     * which is rolled back as a whole.
+     *
+     * @return {@code true} if rows of the source table can be copied into the temp table in chunks
+     */
+    boolean canCopyInChunks(SQLiteDatabase db, List<String> pendingStatements, SqliteDdlBuilder.TableRebuild rebuild) {
+        if (!pendingStatements.contains(rebuild.getCreateTempTableStatement())) {
+            return false;
+        }
+        SQLiteComponent.Name fromTable = rebuild.getFromTableName();
+
+        CreateTableStatement toTable = SQLiteParserCache.parseIntoCreateTableStatement(
+                rebuild.getCreateTempTableStatement());
+        CreateTableStatement fromTableStatement = SQLiteParserCache.parseIntoCreateTableStatement(
+                SQLiteMaster.findByTableName(db, fromTable.getUnquotedToken()).sql);
+
+        if (!fromTableStatement.getConstraints().containsAll(toTable.getConstraints())) {
+            return false;
+        }
+
+        Map<SQLiteComponent.Name, CreateTableStatement.ColumnDef> fromColumns = new HashMap<>();
+        for (CreateTableStatement.ColumnDef column : fromTableStatement.getColumns()) {
+            fromColumns.put(column.getName(), column);
+        }
+        for (CreateTableStatement.ColumnDef column : toTable.getColumns()) {
+            CreateTableStatement.ColumnDef fromColumn = fromColumns.get(column.getName());
+            for (CreateTableStatement.ColumnDef.Constraint constraint : column.getConstraints()) {
+                if (fromColumn != null && fromColumn.getConstraints().contains(constraint)) {
+                    continue;
+                }
+                // DEFAULT and NULL are the only constraints that no row violates
+                if (constraint.getDefaultExpr() == null
+                        && !"NULL".equalsIgnoreCase(constraint.getTokens().get(0).toString())) {
+                    trace("copy %s in a transaction for the constraint: %s", fromTable, constraint);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    void executeInTransaction(final SQLiteDatabase db, final List<String> statements, final List<String> steps) {
+        if (statements.isEmpty() && steps.isEmpty()) {
+            return;
+        }
+
         transaction(db, new Runnable() {
             @Override
             public void run() {
@@ -345,14 +585,98 @@ public class SchemaDiffMigration extends AbstractMigrationEngine {
                     db.execSQL(statement);
                 }
 
-                int dbVersion = fetchDbVersion(db);
-                for (String statement : statements) {
-                    saveStep(db, dbVersion, statement);
+                if (!steps.isEmpty()) {
+                    int dbVersion = fetchDbVersion(db);
+                    for (String statement : steps) {
+                        saveStep(db, dbVersion, statement);
+                    }
                 }
             }
         });
     }
 
+    /**
+     * Moves rows from {@code fromTable} with {@code copyStatement} in chunks ordered by {@code rowid}. Each chunk
+     * is copied and deleted from {@code fromTable} in a transaction, so a killed process can resume copying the
+     * rest of rows.
+     */
+    void copyInChunks(final SQLiteDatabase db, String copyStatement, String fromTable) {
+        String limit = " ORDER BY rowid LIMIT " + rebuildChunkSize;
+        final SQLiteStatement copy = db.compileStatement(copyStatement + limit);
+        final SQLiteStatement delete = db.compileStatement(
+                "DELETE FROM " + fromTable + " WHERE rowid IN (SELECT rowid FROM " + fromTable + limit + ")");
+
+        long total = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + fromTable, null);
+        trace("%s (%d rows in chunks of %d)", copyStatement, total, rebuildChunkSize);
+        try {
+            final int[] copied = new int[1];
+            long copiedTotal = 0;
+            do {
+                transaction(db, new Runnable() {
+                    @Override
+                    public void run() {
+                        copied[0] = copy.executeUpdateDelete();
+                        delete.executeUpdateDelete();
+                    }
+                });
+                copiedTotal += copied[0];
+                trace("copied %d/%d rows from %s", copiedTotal, total, fromTable);
+            } while (copied[0] == rebuildChunkSize);
+        } finally {
+            copy.close();
+            delete.close();
+        }
+    }
+
+    /**
+     * Finishes table rebuilds interrupted by {@link #copyInChunks(SQLiteDatabase, String, String)}: rows left in
+     * an old table are moved to its temp table, and the temp table replaces the old one. A rebuild left by another
+     * chunk size is resumed even if the chunk size is now {@code 0}, in which case the rest of rows are moved in a
+     * transaction.
+     */
+    void resumeTableRebuilds(SQLiteDatabase db) {
+        Map<String, SQLiteMaster> tables = SQLiteMaster.loadTables(db);
+        for (SQLiteMaster tempTable : tables.values()) {
+            if (!"table".equals(tempTable.type)
+                    || !tempTable.tableName.startsWith(SqliteDdlBuilder.TEMP_TABLE_PREFIX)) {
+                continue;
+            }
+            String tableName = tempTable.tableName.substring(SqliteDdlBuilder.TEMP_TABLE_PREFIX.length());
+            trace("resume rebuilding %s", tableName);
+
+            CreateTableStatement toTable = SQLiteParserCache.parseIntoCreateTableStatement(tempTable.sql);
+            List<String> statements = new ArrayList<>();
+            SQLiteMaster table = tables.get(tableName);
+            if (table != null && "table".equals(table.type)) {
+                CreateTableStatement fromTable = SQLiteParserCache.parseIntoCreateTableStatement(table.sql);
+                Set<SQLiteComponent.Name> toColumnNames = new LinkedHashSet<>();
+                for (CreateTableStatement.ColumnDef column : toTable.getColumns()) {
+                    toColumnNames.add(column.getName());
+                }
+                List<SQLiteComponent.Name> columnNames = new ArrayList<>();
+                for (CreateTableStatement.ColumnDef column : fromTable.getColumns()) {
+                    if (toColumnNames.contains(column.getName())) {
+                        columnNames.add(column.getName());
+                    }
+                }
+
+                String copyStatement = util.buildInsertFromSelect(fromTable.getTableName(), toTable.getTableName(),
+                        columnNames, columnNames);
+                if (rebuildChunkSize != 0) {
+                    copyInChunks(db, copyStatement, fromTable.getTableName().toString());
+                } else {
+                    // the rest of rows are moved in the same transaction as the rename
+                    statements.add(copyStatement);
+                }
+                statements.add(util.buildDropTable(fromTable.getTableName()));
+            }
+            statements.add(util.buildRenameTable(toTable.getTableName(), new SQLiteComponent.Name(tableName)));
+
+            // indexes are re-created by diffAll()
+            executeInTransaction(db, statements, Collections.<String>emptyList());
+        }
+    }
+
     private static int fetchDbVersion(SQLiteDatabase db) {
         return (int) DatabaseUtils.longForQuery(db, "PRAGMA schema_version", null);
     }
@@ -22,11 +22,18 @@ import com.github.gfx.android.orma.migration.sqliteparser.SQLiteParserUtils;
 import android.support.annotation.NonNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 public class SqliteDdlBuilder {
 
+    /**
+     * The prefix of tables that {@link #buildRecreateTable(CreateTableStatement, CreateTableStatement, List, List)}
+     * creates to copy rows into.
+     */
+    public static final String TEMP_TABLE_PREFIX = "__temp_";
+
     @NonNull
     public static String ensureEscaped(@NonNull String name) {
         return '`' + ensureNotEscaped(name) + '`';
@@ -71,25 +78,34 @@ public class SqliteDdlBuilder {
         return sb.toString();
     }
 
+    /**
+     * @return A rebuild of {@code fromTable} into {@code toTable}; run {@link TableRebuild#getStatements()} to apply it
+     */
     @NonNull
-    public List<String> buildRecreateTable(CreateTableStatement fromTable, CreateTableStatement toTable,
+    public TableRebuild buildRecreateTable(CreateTableStatement fromTable, CreateTableStatement toTable,
             List<SQLiteComponent.Name> fromColumnNames, List<SQLiteComponent.Name> toColumnNames) {
         SQLiteComponent.Name fromTableName = fromTable.getTableName();
         SQLiteComponent.Name toTableName = toTable.getTableName();
 
-        List<String> statements = new ArrayList<>();
-
-        SQLiteComponent.Name tempTableName = new SQLiteComponent.Name("__temp_" + toTableName.getUnquotedToken());
+        SQLiteComponent.Name tempTableName = new SQLiteComponent.Name(TEMP_TABLE_PREFIX + toTableName.getUnquotedToken());
 
-        statements.add(buildCreateTable(tempTableName, toTable.getColumns()));
+        return new TableRebuild(fromTableName, toTableName, tempTableName,
+                buildCreateTable(tempTableName, toTable.getColumns()),
+                buildInsertFromSelect(fromTableName, tempTableName, fromColumnNames, toColumnNames),
+                buildDropTable(fromTableName),
+                buildRenameTable(tempTableName, toTableName));
+    }
 
-        statements.add(buildInsertFromSelect(fromTableName, tempTableName, fromColumnNames, toColumnNames));
-        statements.add(buildDropTable(fromTableName));
-        statements.add(buildRenameTable(tempTableName, toTableName));
+    @NonNull
+    public List<String> buildAddColumns(@NonNull SQLiteComponent.Name table,
+            @NonNull List<CreateTableStatement.ColumnDef> columns) {
+        List<String> statements = new ArrayList<>();
+        for (CreateTableStatement.ColumnDef column : columns) {
+            statements.add("ALTER TABLE " + table + " ADD COLUMN " + column);
+        }
         return statements;
     }
 
-
     @NonNull
     public String buildDropTable(@NonNull SQLiteComponent.Name table) {
         return "DROP TABLE " + table;
@@ -127,7 +143,7 @@ public class SqliteDdlBuilder {
         }
 
         return buildRecreateTable(fromTable, toTable,
-                extractColumnNames(fromTable.getColumns()), extractColumnNames(toTable.getColumns()));
+                extractColumnNames(fromTable.getColumns()), extractColumnNames(toTable.getColumns())).getStatements();
     }
 
     private List<SQLiteComponent.Name> extractColumnNames(List<CreateTableStatement.ColumnDef> columns) {
@@ -164,4 +180,90 @@ public class SqliteDdlBuilder {
 
         R call(A arg);
     }
+
+    /**
+     * A table rebuild: rows of the source table are copied into a temp table, which replaces the source table.
+     */
+    public static class TableRebuild {
+
+        @NonNull
+        final SQLiteComponent.Name fromTableName;
+
+        @NonNull
+        final SQLiteComponent.Name toTableName;
+
+        @NonNull
+        final SQLiteComponent.Name tempTableName;
+
+        @NonNull
+        final String createTempTableStatement;
+
+        @NonNull
+        final String copyStatement;
+
+        @NonNull
+        final String dropTableStatement;
+
+        @NonNull
+        final String renameTableStatement;
+
+        TableRebuild(@NonNull SQLiteComponent.Name fromTableName, @NonNull SQLiteComponent.Name toTableName,
+                @NonNull SQLiteComponent.Name tempTableName, @NonNull String createTempTableStatement,
+                @NonNull String copyStatement, @NonNull String dropTableStatement,
+                @NonNull String renameTableStatement) {
+            this.fromTableName = fromTableName;
+            this.toTableName = toTableName;
+            this.tempTableName = tempTableName;
+            this.createTempTableStatement = createTempTableStatement;
+            this.copyStatement = copyStatement;
+            this.dropTableStatement = dropTableStatement;
+            this.renameTableStatement = renameTableStatement;
+        }
+
+        @NonNull
+        public SQLiteComponent.Name getFromTableName() {
+            return fromTableName;
+        }
+
+        @NonNull
+        public SQLiteComponent.Name getToTableName() {
+            return toTableName;
+        }
+
+        @NonNull
+        public SQLiteComponent.Name getTempTableName() {
+            return tempTableName;
+        }
+
+        @NonNull
+        public String getCreateTempTableStatement() {
+            return createTempTableStatement;
+        }
+
+        /**
+         * @return {@code INSERT INTO temp (...) SELECT ... FROM from}, which has no {@code ORDER BY} nor {@code LIMIT}
+         */
+        @NonNull
+        public String getCopyStatement() {
+            return copyStatement;
+        }
+
+        @NonNull
+        public String getDropTableStatement() {
+            return dropTableStatement;
+        }
+
+        @NonNull
+        public String getRenameTableStatement() {
+            return renameTableStatement;
+        }
+
+        /**
+         * @return The statements to run in order
+         */
+        @NonNull
+        public List<String> getStatements() {
+            return Arrays.asList(createTempTableStatement, copyStatement, dropTableStatement, renameTableStatement);
+        }
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.migration.sqliteparser;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import android.support.annotation.NonNull;
+import android.util.LruCache;
+
+/**
+ * A process-wide memo of {@link SQLiteParserUtils}, which saves the construction and warm-up cost of the ANTLR
+ * parser for DDL statements seen more than once, e.g. {@code sqlite_master} entries and the schema statements checked
+ * on start-up. The parsed statements are shared, so they must not be modified.
+ */
+public class SQLiteParserCache {
+
+    static final int CACHE_SIZE = 256;
+
+    static final LruCache<String, CreateTableStatement> createTableStatements = new LruCache<>(CACHE_SIZE);
+
+    static final LruCache<String, CreateIndexStatement> createIndexStatements = new LruCache<>(CACHE_SIZE);
+
+    public static CreateTableStatement parseIntoCreateTableStatement(@NonNull String sql)
+            throws ParseCancellationException {
+        CreateTableStatement statement = createTableStatements.get(sql);
+        if (statement == null) {
+            statement = SQLiteParserUtils.parseIntoCreateTableStatement(sql);
+            if (statement != null) {
+                createTableStatements.put(sql, statement);
+            }
+        }
+        return statement;
+    }
+
+    public static CreateIndexStatement parseIntoCreateIndexStatement(@NonNull String sql)
+            throws ParseCancellationException {
+        CreateIndexStatement statement = createIndexStatements.get(sql);
+        if (statement == null) {
+            statement = SQLiteParserUtils.parseIntoCreateIndexStatement(sql);
+            if (statement != null) {
+                createIndexStatements.put(sql, statement);
+            }
+        }
+        return statement;
+    }
+
+    public static void clear() {
+        createTableStatements.evictAll();
+        createIndexStatements.evictAll();
+    }
+}
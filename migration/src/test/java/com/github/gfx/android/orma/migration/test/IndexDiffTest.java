@@ -102,4 +102,38 @@ public class IndexDiffTest {
                 "CREATE INDEX IF NOT EXISTS `index_bar` ON `t` (`bar`)"
         ));
     }
+
+    @Test
+    public void indexDiff_unchanged() throws Exception {
+        assertThat(migration.indexDiff(Arrays.asList(
+                "CREATE INDEX `index_foo` ON `t` (`foo`)",
+                "CREATE INDEX `index_bar` ON `t` (`bar`)"
+        ), Arrays.asList(
+                "CREATE INDEX `index_bar` ON `t` (`bar`)",
+                "CREATE INDEX `index_foo` ON `t` (`foo`)"
+        )), is(empty()));
+    }
+
+    @Test
+    public void indexDiff_partiallyChanged() throws Exception {
+        assertThat(migration.indexDiff(Arrays.asList(
+                "CREATE INDEX `index_foo` ON `t` (`foo`)",
+                "CREATE INDEX `index_bar` ON `t` (`bar`)"
+        ), Arrays.asList(
+                "CREATE INDEX `index_foo` ON `t` (`foo`)",
+                "CREATE INDEX `index_baz` ON `t` (`baz`)"
+        )), contains(
+                "DROP INDEX IF EXISTS `index_bar`",
+                "CREATE INDEX `index_baz` ON `t` (`baz`)"
+        ));
+    }
+
+    @Test
+    public void indexDiff_equivalentStatements() throws Exception {
+        assertThat(migration.indexDiff(Collections.singletonList(
+                "CREATE INDEX index_foo ON t (foo)"
+        ), Collections.singletonList(
+                "CREATE INDEX `index_foo` ON `t` (`foo`)"
+        )), is(empty()));
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.migration.test;
+
+import com.github.gfx.android.orma.migration.MigrationPlan;
+import com.github.gfx.android.orma.migration.SQLiteMaster;
+import com.github.gfx.android.orma.migration.SchemaDiffMigration;
+import com.github.gfx.android.orma.migration.test.util.SchemaData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(AndroidJUnit4.class)
+public class MigrationPlanTest {
+
+    static final String SCHEMA_HASH = "abc";
+
+    SchemaDiffMigration migration;
+
+    SQLiteDatabase db;
+
+    List<SchemaData> schemas;
+
+    Context getContext() {
+        return InstrumentationRegistry.getTargetContext();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        migration = new SchemaDiffMigration(getContext(), SCHEMA_HASH);
+        db = SQLiteDatabase.create(null);
+
+        schemas = new ArrayList<>(Arrays.asList(
+                new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT, `field02` TEXT)",
+                        "CREATE INDEX `index_field01_on_foo` ON `foo` (`field01`)"
+                ),
+                new SchemaData("bar", "CREATE TABLE `bar` (`field10` TEXT)")
+        ));
+
+        for (SchemaData schema : schemas) {
+            db.execSQL(schema.getCreateTableStatement());
+            for (String sql : schema.getCreateIndexStatements()) {
+                db.execSQL(sql);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            db.execSQL("INSERT INTO foo (field01, field02) VALUES ('a" + i + "', 'b" + i + "')");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    @Test
+    public void empty() throws Exception {
+        MigrationPlan plan = migration.plan(db, schemas);
+
+        assertThat(plan.isEmpty(), is(true));
+        assertThat(plan.isExpensive(), is(false));
+    }
+
+    @Test
+    public void cheapSteps() throws Exception {
+        schemas.set(0, new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT, `field02` TEXT, `field03` TEXT)",
+                "CREATE INDEX `index_field02_on_foo` ON `foo` (`field02`)"
+        ));
+        schemas.add(new SchemaData("baz", "CREATE TABLE `baz` (`field100` TEXT)"));
+
+        MigrationPlan plan = migration.plan(db, schemas);
+
+        List<MigrationPlan.Kind> kinds = new ArrayList<>();
+        for (MigrationPlan.Step step : plan.getSteps()) {
+            kinds.add(step.getKind());
+        }
+        assertThat(kinds, contains(
+                MigrationPlan.Kind.ADD_COLUMN,
+                MigrationPlan.Kind.DROP_INDEX,
+                MigrationPlan.Kind.CREATE_INDEX,
+                MigrationPlan.Kind.CREATE_TABLE
+        ));
+        assertThat(plan.isExpensive(), is(false));
+        assertThat(plan.getSteps().get(2).getTableName(), is("foo"));
+        assertThat(plan.getSteps().get(2).getRowCount(), is(100L));
+        assertThat(plan.getRowCountToCopy(), is(0L));
+    }
+
+    @Test
+    public void recreateTable() throws Exception {
+        schemas.set(0, new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT, `field02` BLOB)",
+                "CREATE INDEX `index_field01_on_foo` ON `foo` (`field01`)"
+        ));
+
+        MigrationPlan plan = migration.plan(db, schemas);
+
+        assertThat(plan.getSteps(), hasSize(2));
+        assertThat(plan.isExpensive(), is(true));
+
+        MigrationPlan.Step step = plan.getExpensiveSteps().get(0);
+        assertThat(step.getKind(), is(MigrationPlan.Kind.RECREATE_TABLE));
+        assertThat(step.getTableName(), is("foo"));
+        assertThat(step.getStatements(), hasSize(4));
+        assertThat(step.getRowCount(), is(100L));
+        assertThat(step.getPageCount(), is(greaterThan(0L)));
+
+        assertThat(plan.getRowCountToCopy(), is(100L));
+        assertThat(plan.getStatements(), is(migration.diffAll(SchemaDiffMigration.loadMetadata(db, schemas), schemas)));
+    }
+
+    @Test
+    public void planDoesNotWrite() throws Exception {
+        schemas.set(0, new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT, `field02` BLOB)"));
+
+        migration.plan(db, schemas);
+
+        assertThat(SQLiteMaster.checkIfTableNameExists(db, SchemaDiffMigration.MIGRATION_STEPS_TABLE), is(false));
+        assertThat(SQLiteMaster.checkIfTableNameExists(db, "__temp_foo"), is(false));
+        assertThat(migration.plan(db, schemas).getSteps(), hasSize(1));
+    }
+}
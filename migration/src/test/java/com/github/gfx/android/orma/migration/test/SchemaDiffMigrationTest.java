@@ -15,8 +15,10 @@
  */
 package com.github.gfx.android.orma.migration.test;
 
+import com.github.gfx.android.orma.migration.MigrationEngine;
 import com.github.gfx.android.orma.migration.SQLiteMaster;
 import com.github.gfx.android.orma.migration.SchemaDiffMigration;
+import com.github.gfx.android.orma.migration.TraceListener;
 import com.github.gfx.android.orma.migration.test.util.SchemaData;
 
 import org.junit.After;
@@ -25,8 +27,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.NonNull;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
@@ -38,6 +43,7 @@ import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
 
 @RunWith(AndroidJUnit4.class)
 public class SchemaDiffMigrationTest {
@@ -161,16 +167,123 @@ public class SchemaDiffMigrationTest {
 
     @Test
     public void recreateTableWithIndexes() throws Exception {
+        schemas.set(0, new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT, `field02` BLOB, `field03` TEXT)",
+                "CREATE INDEX `index_field01_on_foo` ON `foo` (`field01`)",
+                "CREATE INDEX `index_field02_on_foo` ON `foo` (`field02`)"
+        ));
+        statements = migration.diffAll(metadata, schemas);
+        migration.executeStatements(db, statements);
+
+        assertThat(migration.diffAll(SchemaDiffMigration.loadMetadata(db, schemas), schemas), is(empty()));
+    }
+
+    @Test
+    public void addColumnWithIndexes() throws Exception {
         schemas.set(0, new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT, `field02` TEXT, `field03` TEXT)",
                 "CREATE INDEX `index_field01_on_foo` ON `foo` (`field01`)",
                 "CREATE INDEX `index_field02_on_foo` ON `foo` (`field02`)"
         ));
         statements = migration.diffAll(metadata, schemas);
+
+        assertThat(statements, contains("ALTER TABLE `foo` ADD COLUMN `field03` TEXT"));
+
         migration.executeStatements(db, statements);
 
         assertThat(migration.diffAll(SchemaDiffMigration.loadMetadata(db, schemas), schemas), is(empty()));
     }
 
+    @Test
+    public void recreateTableInChunks() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            db.execSQL("INSERT INTO foo (field01, field02) VALUES ('a" + i + "', 'b" + i + "')");
+        }
+        migration.setRebuildChunkSize(3);
+
+        schemas.set(0, new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT, `field02` BLOB)",
+                "CREATE INDEX `index_field01_on_foo` ON `foo` (`field01`)"
+        ));
+        migration.start(db, schemas);
+
+        assertThat(DatabaseUtils.queryNumEntries(db, "foo"), is(11L));
+        assertThat(SQLiteMaster.checkIfTableNameExists(db, "__temp_foo"), is(false));
+        assertThat(migration.isSchemaChanged(db), is(false));
+        assertThat(migration.diffAll(SchemaDiffMigration.loadMetadata(db, schemas), schemas), is(empty()));
+    }
+
+    @Test
+    public void recreateTableWithNewConstraintsInTransaction() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            db.execSQL("INSERT INTO foo (field01, field02) VALUES ('a', 'b" + i + "')");
+        }
+        migration.setRebuildChunkSize(3);
+
+        // the 2nd chunk violates the UNIQUE constraint
+        schemas.set(0, new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT UNIQUE, `field02` TEXT)"));
+        try {
+            migration.start(db, schemas);
+            fail("SQLiteConstraintException expected");
+        } catch (SQLiteConstraintException e) {
+            // the whole rebuild is rolled back
+        }
+
+        assertThat(DatabaseUtils.queryNumEntries(db, "foo"), is(11L));
+        assertThat(SQLiteMaster.checkIfTableNameExists(db, "__temp_foo"), is(false));
+        assertThat(migration.isSchemaChanged(db), is(true));
+
+        db.execSQL("DELETE FROM foo WHERE field01 = 'a' AND field02 <> 'b0'");
+        migration.start(db, schemas);
+
+        assertThat(DatabaseUtils.queryNumEntries(db, "foo"), is(2L));
+        assertThat(SQLiteMaster.checkIfTableNameExists(db, "__temp_foo"), is(false));
+        assertThat(migration.diffAll(SchemaDiffMigration.loadMetadata(db, schemas), schemas), is(empty()));
+    }
+
+    @Test
+    public void resumeRecreatingTable() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            db.execSQL("INSERT INTO foo (field01, field02) VALUES ('a" + i + "', 'b" + i + "')");
+        }
+        migration.setRebuildChunkSize(3);
+
+        // a rebuild killed after the first chunk
+        db.execSQL("CREATE TABLE `__temp_foo` (`field01` TEXT, `field02` BLOB)");
+        db.execSQL("INSERT INTO `__temp_foo` (`field01`, `field02`)"
+                + " SELECT `field01`, `field02` FROM `foo` ORDER BY rowid LIMIT 3");
+        db.execSQL("DELETE FROM `foo` WHERE rowid IN (SELECT rowid FROM `foo` ORDER BY rowid LIMIT 3)");
+
+        schemas.set(0, new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT, `field02` BLOB)",
+                "CREATE INDEX `index_field01_on_foo` ON `foo` (`field01`)"
+        ));
+        migration.start(db, schemas);
+
+        assertThat(DatabaseUtils.queryNumEntries(db, "foo"), is(11L));
+        assertThat(SQLiteMaster.checkIfTableNameExists(db, "__temp_foo"), is(false));
+        assertThat(migration.diffAll(SchemaDiffMigration.loadMetadata(db, schemas), schemas), is(empty()));
+    }
+
+    @Test
+    public void resumeRecreatingTableWithoutChunks() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            db.execSQL("INSERT INTO foo (field01, field02) VALUES ('a" + i + "', 'b" + i + "')");
+        }
+        migration.setRebuildChunkSize(0);
+
+        // a rebuild killed after the first chunk, which was run with another chunk size
+        db.execSQL("CREATE TABLE `__temp_foo` (`field01` TEXT, `field02` BLOB)");
+        db.execSQL("INSERT INTO `__temp_foo` (`field01`, `field02`)"
+                + " SELECT `field01`, `field02` FROM `foo` ORDER BY rowid LIMIT 3");
+        db.execSQL("DELETE FROM `foo` WHERE rowid IN (SELECT rowid FROM `foo` ORDER BY rowid LIMIT 3)");
+
+        schemas.set(0, new SchemaData("foo", "CREATE TABLE `foo` (`field01` TEXT, `field02` BLOB)",
+                "CREATE INDEX `index_field01_on_foo` ON `foo` (`field01`)"
+        ));
+        migration.start(db, schemas);
+
+        assertThat(DatabaseUtils.queryNumEntries(db, "foo"), is(11L));
+        assertThat(SQLiteMaster.checkIfTableNameExists(db, "__temp_foo"), is(false));
+        assertThat(migration.diffAll(SchemaDiffMigration.loadMetadata(db, schemas), schemas), is(empty()));
+    }
+
     @Test
     public void migrationStepTableMigration1To2() throws Exception {
         // setup v1 table
@@ -200,6 +313,42 @@ public class SchemaDiffMigrationTest {
     }
 
 
+    @Test
+    public void skipVerifiedSchema() throws Exception {
+        final List<String> traces = new ArrayList<>();
+        SchemaDiffMigration migration = new SchemaDiffMigration(getContext(), SCHEMA_HASH, new TraceListener() {
+            @Override
+            public void onTrace(@NonNull MigrationEngine engine, @NonNull String format, @NonNull Object[] args) {
+                traces.add(format);
+            }
+        });
+        String skipped = "skip checking the schema verified in this process";
+
+        String name = "schema_diff_migration_test.db";
+        getContext().deleteDatabase(name);
+        SQLiteDatabase db = getContext().openOrCreateDatabase(name, Context.MODE_PRIVATE, null);
+        try {
+            SchemaDiffMigration.clearVerifiedSchemas();
+
+            migration.start(db, schemas);
+            assertThat(SQLiteMaster.checkIfTableNameExists(db, "foo"), is(true));
+            assertThat(traces, not(hasItem(skipped)));
+
+            migration.start(db, schemas);
+            assertThat(traces, hasItem(skipped));
+
+            // any DDL invalidates the verified schema
+            traces.clear();
+            db.execSQL("DROP TABLE foo");
+            migration.start(db, schemas);
+            assertThat(traces, not(hasItem(skipped)));
+        } finally {
+            db.close();
+            getContext().deleteDatabase(name);
+            SchemaDiffMigration.clearVerifiedSchemas();
+        }
+    }
+
     class OpenHelper extends SQLiteOpenHelper {
 
         public OpenHelper(Context context) {
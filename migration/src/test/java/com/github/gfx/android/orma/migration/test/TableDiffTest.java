@@ -94,10 +94,7 @@ public class TableDiffTest {
         List<String> statements = migration.tableDiff(from, to);
 
         assertThat(statements, contains(
-                "CREATE TABLE `__temp_todo` (`title` TEXT, `content` TEXT)",
-                "INSERT INTO `__temp_todo` (`title`) SELECT `title` FROM `todo`",
-                "DROP TABLE `todo`",
-                "ALTER TABLE `__temp_todo` RENAME TO `todo`"));
+                "ALTER TABLE `todo` ADD COLUMN `content` TEXT"));
     }
 
     @Test
@@ -107,12 +104,33 @@ public class TableDiffTest {
         List<String> statements = migration.tableDiff(from, to);
 
         assertThat(statements, contains(
-                "CREATE TABLE `__temp_todo` (`title` TEXT, `content` TEXT, `createdDate` TIMESTAMP)",
+                "ALTER TABLE `todo` ADD COLUMN `content` TEXT",
+                "ALTER TABLE `todo` ADD COLUMN `createdDate` TIMESTAMP"));
+    }
+
+    @Test
+    public void addNonNullColumnWithoutDefault() throws Exception {
+        String from = "CREATE TABLE todo (title TEXT)";
+        String to = "CREATE TABLE todo (title TEXT, content TEXT NOT NULL)";
+        List<String> statements = migration.tableDiff(from, to);
+
+        assertThat(statements, contains(
+                "CREATE TABLE `__temp_todo` (`title` TEXT, `content` TEXT NOT NULL)",
                 "INSERT INTO `__temp_todo` (`title`) SELECT `title` FROM `todo`",
                 "DROP TABLE `todo`",
                 "ALTER TABLE `__temp_todo` RENAME TO `todo`"));
     }
 
+    @Test
+    public void addNonNullColumnWithDefault() throws Exception {
+        String from = "CREATE TABLE todo (title TEXT)";
+        String to = "CREATE TABLE todo (title TEXT, content TEXT NOT NULL DEFAULT '')";
+        List<String> statements = migration.tableDiff(from, to);
+
+        assertThat(statements, contains(
+                "ALTER TABLE `todo` ADD COLUMN `content` TEXT NOT NULL DEFAULT ''"));
+    }
+
     @Test
     public void dropOneColumn() throws Exception {
         String from = "CREATE TABLE todo (title TEXT, content TEXT)";
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.migration.test.sqliteparser_test;
+
+import com.github.gfx.android.orma.migration.sqliteparser.CreateIndexStatement;
+import com.github.gfx.android.orma.migration.sqliteparser.CreateTableStatement;
+import com.github.gfx.android.orma.migration.sqliteparser.SQLiteParserCache;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(AndroidJUnit4.class)
+public class SQLiteParserCacheTest {
+
+    @Before
+    public void setUp() throws Exception {
+        SQLiteParserCache.clear();
+    }
+
+    @Test
+    public void parseIntoCreateTableStatement() throws Exception {
+        String sql = "CREATE TABLE foo (id INTEGER PRIMARY KEY, title TEXT)";
+        CreateTableStatement statement = SQLiteParserCache.parseIntoCreateTableStatement(sql);
+
+        assertThat(statement.getColumns(), hasSize(2));
+        assertThat(SQLiteParserCache.parseIntoCreateTableStatement(sql), is(sameInstance(statement)));
+    }
+
+    @Test
+    public void parseIntoCreateIndexStatement() throws Exception {
+        String sql = "CREATE INDEX index_title_on_foo ON foo (title)";
+        CreateIndexStatement statement = SQLiteParserCache.parseIntoCreateIndexStatement(sql);
+
+        assertThat(statement.getIndexName().toString(), is("`index_title_on_foo`"));
+        assertThat(SQLiteParserCache.parseIntoCreateIndexStatement(sql), is(sameInstance(statement)));
+    }
+
+    @Test
+    public void clear() throws Exception {
+        String sql = "CREATE TABLE foo (id INTEGER PRIMARY KEY, title TEXT)";
+        CreateTableStatement statement = SQLiteParserCache.parseIntoCreateTableStatement(sql);
+        SQLiteParserCache.clear();
+
+        assertThat(SQLiteParserCache.parseIntoCreateTableStatement(sql), is(not(sameInstance(statement))));
+    }
+
+    @Test(expected = ParseCancellationException.class)
+    public void parseBad() throws Exception {
+        SQLiteParserCache.parseIntoCreateTableStatement("CREATE TABLE");
+    }
+}
@@ -18,6 +18,7 @@ package com.github.gfx.android.orma.processor.generator;
 import com.github.gfx.android.orma.annotation.OnConflict;
 import com.github.gfx.android.orma.processor.OrmaProcessor;
 import com.github.gfx.android.orma.processor.ProcessingContext;
+import com.github.gfx.android.orma.processor.model.ColumnDefinition;
 import com.github.gfx.android.orma.processor.model.DatabaseDefinition;
 import com.github.gfx.android.orma.processor.model.SchemaDefinition;
 import com.github.gfx.android.orma.processor.util.Annotations;
@@ -373,6 +374,22 @@ public class DatabaseWriter extends BaseWriter {
                                     schemaInstance)
                             .build());
 
+            if (schema.getPrimaryKey() != null) {
+                methodSpecs.add(
+                        MethodSpec.methodBuilder("updateAll" + simpleModelName)
+                                .addJavadoc("Updates {@code models} by their primary keys in a transaction:"
+                                        + " {@code UPDATE $T SET ... WHERE primaryKey = ?}.\n", schema.getModelClassName())
+                                .addModifiers(Modifier.PUBLIC)
+                                .returns(int.class)
+                                .addParameter(
+                                        ParameterSpec.builder(Types.getIterable(schema.getModelClassName()), "models")
+                                                .addAnnotation(Annotations.nonNull())
+                                                .build()
+                                )
+                                .addStatement("return $L.updateAll($L, models)", connection, schemaInstance)
+                                .build());
+            }
+
             methodSpecs.add(
                     MethodSpec.methodBuilder("deleteFrom" + simpleModelName)
                             .addJavadoc("Starts building a query: {@code DELETE FROM $T ...}.\n", schema.getModelClassName())
@@ -385,6 +402,25 @@ public class DatabaseWriter extends BaseWriter {
                                     schemaInstance)
                             .build());
 
+            if (schema.getPrimaryKey() != null) {
+                methodSpecs.add(buildDeleteByPrimaryKeys(schema, schemaInstance));
+            }
+
+            if (schema.getPrimaryKey() != null) {
+                methodSpecs.add(
+                        MethodSpec.methodBuilder("prepareUpsertInto" + simpleModelName)
+                                .addJavadoc("Create prepared statements to insert or update {@code $T} by primary keys.\n",
+                                        schema.getModelClassName())
+                                .addAnnotation(Annotations.nonNull())
+                                .addModifiers(Modifier.PUBLIC)
+                                .returns(Types.getUpserter(schema.getModelClassName()))
+                                .addStatement("return new $T($L, $L)",
+                                        Types.getUpserter(schema.getModelClassName()),
+                                        connection,
+                                        schemaInstance)
+                                .build());
+            }
+
             methodSpecs.add(
                     MethodSpec.methodBuilder("insertInto" + simpleModelName)
                             .addJavadoc("Executes a query: {@code INSERT INTO $T ...}.\n", schema.getModelClassName())
@@ -449,6 +485,34 @@ public class DatabaseWriter extends BaseWriter {
         return methodSpecs;
     }
 
+    private MethodSpec buildDeleteByPrimaryKeys(SchemaDefinition schema, CodeBlock schemaInstance) {
+        ColumnDefinition primaryKey = schema.getPrimaryKey();
+
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("deleteFrom" + schema.getModelClassName().simpleName()
+                + "ByPrimaryKeys")
+                .addJavadoc("Deletes rows by their primary keys in a transaction:"
+                        + " {@code DELETE FROM $T WHERE primaryKey IN (...)}.\n", schema.getModelClassName())
+                .addModifiers(Modifier.PUBLIC)
+                .returns(int.class)
+                .addParameter(
+                        ParameterSpec.builder(Types.getCollection(primaryKey.getBoxType()), "primaryKeys")
+                                .addAnnotation(Annotations.nonNull())
+                                .build()
+                );
+
+        if (primaryKey.needsTypeAdapter()) {
+            builder.addStatement("$T serializedPrimaryKeys = new $T<>(primaryKeys.size())",
+                    Types.getList(primaryKey.getSerializedBoxType()), ClassName.get(ArrayList.class));
+            builder.beginControlFlow("for ($T primaryKey : primaryKeys)", primaryKey.getBoxType());
+            builder.addStatement("serializedPrimaryKeys.add($L)", primaryKey.buildSerializeExpr(connection, "primaryKey"));
+            builder.endControlFlow();
+            builder.addStatement("return $L.deleteByPrimaryKeys($L, serializedPrimaryKeys)", connection, schemaInstance);
+        } else {
+            builder.addStatement("return $L.deleteByPrimaryKeys($L, primaryKeys)", connection, schemaInstance);
+        }
+        return builder.build();
+    }
+
     public List<MethodSpec> buildConstructorSpecs() {
         List<MethodSpec> methodSpecs = new ArrayList<>();
 
@@ -57,6 +57,8 @@ public class SchemaWriter extends BaseWriter {
 
     static final String withoutAutoId = "withoutAutoId";
 
+    static final String numRows = "numRows";
+
     static final Modifier[] publicStaticFinal = {
             Modifier.PUBLIC,
             Modifier.STATIC,
@@ -216,6 +218,28 @@ public class SchemaWriter extends BaseWriter {
         }
         columnDefType.addMethod(getSerializedBuilder.build());
 
+        // ColumnDef#getFromCursor()
+        MethodSpec.Builder getFromCursorBuilder = MethodSpec.methodBuilder("getFromCursor")
+                .addAnnotation(Annotations.override())
+                .addAnnotation(c.nullable ? Annotations.nullable() : Annotations.nonNull())
+                .addModifiers(Modifier.PUBLIC)
+                .returns(c.getBoxType())
+                .addParameter(ParameterSpec.builder(Types.OrmaConnection, "conn")
+                        .addAnnotation(Annotations.nonNull())
+                        .build())
+                .addParameter(ParameterSpec.builder(Types.Cursor, "cursor")
+                        .addAnnotation(Annotations.nonNull())
+                        .build())
+                .addParameter(int.class, "index");
+        if (c.isDirectAssociation()) {
+            getFromCursorBuilder.addStatement("throw new $T($S)", Types.UnsupportedOperationException,
+                    "Direct associations are not supported in projections: " + c.name);
+        } else {
+            getFromCursorBuilder.addStatement("return $L",
+                    buildGetFromCursorExpr(c, CodeBlock.builder().add("index").build()));
+        }
+        columnDefType.addMethod(getFromCursorBuilder.build());
+
         return FieldSpec.builder(c.getColumnDefType(), c.name)
                 .addModifiers(publicStaticFinal)
                 .initializer("$L", columnDefType.build())
@@ -430,10 +454,51 @@ public class SchemaWriter extends BaseWriter {
                         .addParameter(ParameterSpec.builder(boolean.class, withoutAutoId)
                                 .build())
                         .returns(Types.String)
-                        .addCode(context.sqlg.buildInsertStatementCode(schema, onConflictAlgorithm, withoutAutoId))
+                        .addStatement("return getInsertStatement($L, $L, 1)", onConflictAlgorithm, withoutAutoId)
                         .build()
         );
 
+        methodSpecs.add(
+                MethodSpec.methodBuilder("getInsertStatement")
+                        .addAnnotations(Annotations.overrideAndNonNull())
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(ParameterSpec.builder(int.class, onConflictAlgorithm)
+                                .addAnnotation(OnConflict.class)
+                                .build())
+                        .addParameter(ParameterSpec.builder(boolean.class, withoutAutoId)
+                                .build())
+                        .addParameter(ParameterSpec.builder(int.class, numRows)
+                                .build())
+                        .returns(Types.String)
+                        .addCode(context.sqlg.buildInsertStatementCode(schema, onConflictAlgorithm, withoutAutoId,
+                                numRows))
+                        .build()
+        );
+
+        MethodSpec.Builder getUpdateStatement = MethodSpec.methodBuilder("getUpdateStatement")
+                .addAnnotations(Annotations.overrideAndNonNull())
+                .addModifiers(Modifier.PUBLIC)
+                .returns(Types.String);
+        if (schema.getPrimaryKey() != null) {
+            getUpdateStatement.addStatement("return $S", context.sqlg.buildUpdateByPrimaryKeyStatement(schema));
+        } else {
+            getUpdateStatement.addStatement("throw new $T($S)", Types.UnsupportedOperationException,
+                    "Updating by primary key requires @PrimaryKey: " + schema.getModelClassName().simpleName());
+        }
+        methodSpecs.add(getUpdateStatement.build());
+
+        MethodSpec.Builder getUpsertStatement = MethodSpec.methodBuilder("getUpsertStatement")
+                .addAnnotations(Annotations.overrideAndNonNull())
+                .addModifiers(Modifier.PUBLIC)
+                .returns(Types.String);
+        if (schema.getPrimaryKey() != null) {
+            getUpsertStatement.addStatement("return $S", context.sqlg.buildUpsertStatement(schema));
+        } else {
+            getUpsertStatement.addStatement("throw new $T($S)", Types.UnsupportedOperationException,
+                    "Upsert requires @PrimaryKey: " + schema.getModelClassName().simpleName());
+        }
+        methodSpecs.add(getUpsertStatement.build());
+
         methodSpecs.add(
                 MethodSpec.methodBuilder("convertToArgs")
                         .addJavadoc("Convert models to {@code Object[]}. Provided for debugging\n")
@@ -471,6 +536,29 @@ public class SchemaWriter extends BaseWriter {
                                         .addAnnotation(Annotations.nonNull())
                                         .build())
                         .addParameter(boolean.class, withoutAutoId)
+                        .addStatement("bindArgs(conn, statement, model, $L, 0)", withoutAutoId)
+                        .build()
+        );
+
+        methodSpecs.add(
+                MethodSpec.methodBuilder("bindArgs")
+                        .addAnnotation(Annotations.override())
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.VOID)
+                        .addParameter(
+                                ParameterSpec.builder(Types.OrmaConnection, "conn")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(
+                                ParameterSpec.builder(Types.SQLiteStatement, "statement")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(
+                                ParameterSpec.builder(schema.getModelClassName(), "model")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(boolean.class, withoutAutoId)
+                        .addParameter(int.class, "offset")
                         .addCode(buildBindArgs())
                         .build()
         );
@@ -493,6 +581,28 @@ public class SchemaWriter extends BaseWriter {
                         .build()
         );
 
+        methodSpecs.add(
+                MethodSpec.methodBuilder("newModelFromCursor")
+                        .addAnnotations(Annotations.overrideAndNonNull())
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(schema.getModelClassName())
+                        .addParameter(
+                                ParameterSpec.builder(Types.OrmaConnection, "conn")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(
+                                ParameterSpec.builder(Types.Cursor, "cursor")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addParameter(
+                                ParameterSpec.builder(Types.getList(Types.getColumnDef(schema.getModelClassName(),
+                                        Types.WildcardType)), "$columns")
+                                        .addAnnotation(Annotations.nonNull())
+                                        .build())
+                        .addCode(buildNewModelFromCursorWithProjection())
+                        .build()
+        );
+
         return methodSpecs;
     }
 
@@ -555,7 +665,7 @@ public class SchemaWriter extends BaseWriter {
 
         List<ColumnDefinition> columns = schema.getColumns();
         for (int i = 0; i < columns.size(); i++) {
-            int n = i + 1; // bind index starts 1
+            String n = "offset + " + (i + 1); // bind index starts 1
             ColumnDefinition c = columns.get(i);
 
             if (c.isNullableInJava()) {
@@ -624,27 +734,97 @@ public class SchemaWriter extends BaseWriter {
                 // NOTE: lhsBaseGen.apply(c) makes, e.g. "model.", ignoring the parameter "c".
                 builder.addStatement("$L$L", lhsBaseGen.apply(c), c.buildSetColumnExpr(createAssociatedModelExpr));
                 offset += consumingItemSize;
-            } else if (Types.isSingleAssociation(type)) {
-                AssociationDefinition r = c.getAssociation();
-                assert r != null;
-                CodeBlock.Builder getRhsExpr = CodeBlock.builder()
-                        .add("new $T<>(conn, $L, cursor.getLong($L))",
-                                r.getAssociationType(), c.getAssociatedSchema().createSchemaInstanceExpr(), index);
-                builder.addStatement("$L$L", lhsBaseGen.apply(c), c.buildSetColumnExpr(getRhsExpr.build()));
             } else {
-                CodeBlock.Builder rhsExprBuilder = CodeBlock.builder();
-                if (c.isNullableInSQL()) {
-                    rhsExprBuilder.add("cursor.isNull($L) ? null : $L", index,
-                            c.buildDeserializeExpr("conn", cursorGetter(c, index)));
-                } else {
-                    rhsExprBuilder.add(c.buildDeserializeExpr("conn", cursorGetter(c, index)));
-                }
-                builder.addStatement("$L$L", lhsBaseGen.apply(c), c.buildSetColumnExpr(rhsExprBuilder.build()));
+                builder.addStatement("$L$L", lhsBaseGen.apply(c), c.buildSetColumnExpr(buildGetFromCursorExpr(c, index)));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return An expression to deserialize a column value at {@code index}, except for direct associations
+     */
+    private CodeBlock buildGetFromCursorExpr(ColumnDefinition c, CodeBlock index) {
+        CodeBlock.Builder rhsExprBuilder = CodeBlock.builder();
+        if (Types.isSingleAssociation(c.getUnboxType())) {
+            AssociationDefinition r = c.getAssociation();
+            assert r != null;
+            rhsExprBuilder.add("new $T<>(conn, $L, cursor.getLong($L))",
+                    r.getAssociationType(), c.getAssociatedSchema().createSchemaInstanceExpr(), index);
+        } else if (c.isNullableInSQL()) {
+            rhsExprBuilder.add("cursor.isNull($L) ? null : $L", index,
+                    c.buildDeserializeExpr("conn", cursorGetter(c, index)));
+        } else {
+            rhsExprBuilder.add(c.buildDeserializeExpr("conn", cursorGetter(c, index)));
+        }
+        return rhsExprBuilder.build();
+    }
+
+    private CodeBlock buildNewModelFromCursorWithProjection() {
+        CodeBlock.Builder builder = CodeBlock.builder();
+        List<ColumnDefinition> columns = schema.getColumns();
+        ClassName schemaClass = schema.getSchemaClassName();
+
+        if (schema.hasDefaultConstructor()) {
+            builder.addStatement("$T model = new $T()", schema.getModelClassName(), schema.getModelClassName());
+        } else {
+            for (ColumnDefinition c : columns) {
+                builder.addStatement("$T $L = $L", c.getType(), c.name, defaultValueExpr(c.getType()));
             }
         }
+
+        // synthetic names are prefixed with "$" not to collide with locals named after columns
+        builder.beginControlFlow("for (int $$i = 0, $$size = $$columns.size(); $$i < $$size; $$i++)");
+        builder.addStatement("$T $$column = $$columns.get($$i)", Types.getColumnDef(schema.getModelClassName(),
+                Types.WildcardType));
+        boolean first = true;
+        for (ColumnDefinition c : columns) {
+            if (first) {
+                builder.beginControlFlow("if ($$column == $T.$L)", schemaClass, c.name);
+                first = false;
+            } else {
+                builder.nextControlFlow("else if ($$column == $T.$L)", schemaClass, c.name);
+            }
+            CodeBlock rhsExpr = CodeBlock.builder()
+                    .add("$T.$L.getFromCursor(conn, cursor, $$i)", schemaClass, c.name)
+                    .build();
+            if (schema.hasDefaultConstructor()) {
+                builder.addStatement("model.$L", c.buildSetColumnExpr(rhsExpr));
+            } else {
+                builder.addStatement("$L = $L", c.name, rhsExpr);
+            }
+        }
+        if (!first) {
+            builder.endControlFlow();
+        }
+        builder.endControlFlow();
+
+        if (schema.hasDefaultConstructor()) {
+            builder.addStatement("return model");
+        } else {
+            ExecutableElement constructorElement = schema.getConstructorElement();
+            assert constructorElement != null;
+            builder.addStatement("return new $T($L)", schema.getModelClassName(),
+                    constructorElement.getParameters()
+                            .stream()
+                            .map(this::extractColumnNameFromParameterElement)
+                            .collect(Collectors.joining(", ")));
+        }
         return builder.build();
     }
 
+    private static String defaultValueExpr(TypeName type) {
+        if (type.equals(TypeName.BOOLEAN)) {
+            return "false";
+        } else if (type.equals(TypeName.CHAR)) {
+            return "'\\0'";
+        } else if (type.isPrimitive()) {
+            return "(" + type + ") 0";
+        } else {
+            return "null";
+        }
+    }
+
     private CodeBlock buildNewModelFromCursor() {
         CodeBlock.Builder builder = CodeBlock.builder();
         if (schema.hasDefaultConstructor()) {
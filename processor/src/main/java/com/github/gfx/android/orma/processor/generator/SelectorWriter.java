@@ -97,17 +97,18 @@ public class SelectorWriter extends BaseWriter {
     }
 
     Stream<MethodSpec> buildOrderByHelpers(ColumnDefinition column) {
-        String columnName = column.getEscapedColumnName();
         return Stream.of(
                 MethodSpec.methodBuilder("orderBy" + Strings.toUpperFirst(column.name) + "Asc")
                         .addModifiers(Modifier.PUBLIC)
                         .returns(getTargetClassName())
-                        .addStatement("return orderBy($S)", columnName + " ASC")
+                        .addStatement("return orderBy($T.$L.orderInAscending())", schema.getSchemaClassName(),
+                                column.name)
                         .build(),
                 MethodSpec.methodBuilder("orderBy" + Strings.toUpperFirst(column.name) + "Desc")
                         .addModifiers(Modifier.PUBLIC)
                         .returns(getTargetClassName())
-                        .addStatement("return orderBy($S)", columnName + " DESC")
+                        .addStatement("return orderBy($T.$L.orderInDescending())", schema.getSchemaClassName(),
+                                column.name)
                         .build()
         );
     }
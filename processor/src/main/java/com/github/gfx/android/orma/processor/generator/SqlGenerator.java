@@ -196,7 +196,7 @@ public class SqlGenerator {
 
 
     public CodeBlock buildInsertStatementCode(SchemaDefinition schema,
-            String onConflictAlgorithmParamName, String withoutAutoValuesParamName) {
+            String onConflictAlgorithmParamName, String withoutAutoValuesParamName, String numRowsParamName) {
         CodeBlock.Builder codeBuilder = CodeBlock.builder();
         codeBuilder.addStatement("$T s = new $T()", StringBuilder.class, StringBuilder.class);
 
@@ -213,22 +213,109 @@ public class SqlGenerator {
 
         String insertWithoutAutoId = buildInsertComponent(schema, true);
         String insertWithAutoId = buildInsertComponent(schema, false);
+        String valuesWithoutAutoId = buildInsertValuesComponent(schema, true);
+        String valuesWithAutoId = buildInsertValuesComponent(schema, false);
 
         if (insertWithoutAutoId.equals(insertWithAutoId)) {
             codeBuilder.addStatement("s.append($S)", insertWithoutAutoId);
+            codeBuilder.addStatement("$T values = $S", String.class, valuesWithoutAutoId);
         } else {
+            codeBuilder.addStatement("$T values", String.class);
             codeBuilder.beginControlFlow("if ($L)", withoutAutoValuesParamName);
             codeBuilder.addStatement("s.append($S)", insertWithoutAutoId);
+            codeBuilder.addStatement("values = $S", valuesWithoutAutoId);
             codeBuilder.endControlFlow();
             codeBuilder.beginControlFlow("else");
             codeBuilder.addStatement("s.append($S)", insertWithAutoId);
+            codeBuilder.addStatement("values = $S", valuesWithAutoId);
             codeBuilder.endControlFlow();
         }
+
+        codeBuilder.beginControlFlow("for (int i = 0; i < $L; i++)", numRowsParamName);
+        codeBuilder.beginControlFlow("if (i != 0)");
+        codeBuilder.addStatement("s.append(',')");
+        codeBuilder.endControlFlow();
+        codeBuilder.addStatement("s.append(values)");
+        codeBuilder.endControlFlow();
+
         codeBuilder.addStatement("return s.toString()");
 
         return codeBuilder.build();
     }
 
+    /**
+     * @return {@code UPDATE table SET column = ?, ... WHERE primaryKey = ?}, whose placeholders are in the same order
+     * as {@code bindArgs()} because the primary key is the last column. It requires {@code @PrimaryKey}.
+     */
+    @NonNull
+    public String buildUpdateByPrimaryKeyStatement(SchemaDefinition schema) {
+        ColumnDefinition primaryKey = schema.getPrimaryKey();
+        StringBuilder sb = new StringBuilder();
+        sb.append("UPDATE ");
+        appendIdentifier(sb, schema.getTableName());
+        sb.append(" SET ");
+
+        boolean first = true;
+        for (ColumnDefinition c : schema.getColumns()) {
+            if (c == primaryKey) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            appendIdentifier(sb, c.columnName);
+            sb.append(" = ?");
+            first = false;
+        }
+        if (first) {
+            // no column other than the primary key
+            appendIdentifier(sb, primaryKey.columnName);
+            sb.append(" = ");
+            appendIdentifier(sb, primaryKey.columnName);
+        }
+
+        sb.append(" WHERE ");
+        appendIdentifier(sb, primaryKey.columnName);
+        sb.append(" = ?");
+        return sb.toString();
+    }
+
+    /**
+     * @return {@code INSERT INTO table (columns...) VALUES (?...) ON CONFLICT (primaryKey) DO UPDATE SET ...},
+     * which requires SQLite 3.24.0 or later and {@code @PrimaryKey}
+     */
+    @NonNull
+    public String buildUpsertStatement(SchemaDefinition schema) {
+        ColumnDefinition primaryKey = schema.getPrimaryKey();
+        StringBuilder sb = new StringBuilder();
+        sb.append("INSERT");
+        sb.append(buildInsertComponent(schema, false));
+        sb.append(buildInsertValuesComponent(schema, false));
+        sb.append(" ON CONFLICT (");
+        appendIdentifier(sb, primaryKey.columnName);
+        sb.append(") DO ");
+
+        boolean first = true;
+        for (ColumnDefinition c : schema.getColumns()) {
+            if (c == primaryKey) {
+                continue;
+            }
+            sb.append(first ? "UPDATE SET " : ",");
+            appendIdentifier(sb, c.columnName);
+            sb.append(" = excluded.");
+            appendIdentifier(sb, c.columnName);
+            first = false;
+        }
+        if (first) {
+            // no column other than the primary key
+            sb.append("NOTHING");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return {@code INTO table (columns...) VALUES } without any placeholder
+     */
     @NonNull
     public String buildInsertComponent(SchemaDefinition schema, boolean withoutAutoId) {
         StringBuilder sb = new StringBuilder();
@@ -249,20 +336,29 @@ public class SqlGenerator {
             first = false;
         }
         sb.append(')');
-        sb.append(" VALUES (");
-        first = true;
-        for (int i = 0; i < nColumns; i++) {
-            if (!first) {
+        sb.append(" VALUES ");
+        return sb.toString();
+    }
+
+    /**
+     * @return Placeholders for a row, e.g. {@code (?,?,?)}
+     */
+    @NonNull
+    public String buildInsertValuesComponent(SchemaDefinition schema, boolean withoutAutoId) {
+        StringBuilder sb = new StringBuilder();
+        List<ColumnDefinition> columns = withoutAutoId ? schema.getColumnsWithoutAutoId() : schema.getColumns();
+
+        sb.append('(');
+        for (int i = 0, nColumns = columns.size(); i < nColumns; i++) {
+            if (i != 0) {
                 sb.append(',');
             }
             sb.append('?');
-            first = false;
         }
         sb.append(')');
         return sb.toString();
     }
 
-
     public void appendIdentifier(StringBuilder sb, String identifier) {
         sb.append('`');
         sb.append(identifier);
@@ -102,6 +102,8 @@ public class Types {
 
     public static final ClassName Inserter = ClassName.get(ormaPackageName, "Inserter");
 
+    public static final ClassName Upserter = ClassName.get(ormaPackageName, "Upserter");
+
     public static final ClassName SingleAssociation = ClassName.get(ormaPackageName, "SingleAssociation");
 
     public static final ClassName ModelFactory = ClassName.get(ormaPackageName, "ModelFactory");
@@ -129,6 +131,8 @@ public class Types {
 
     public static final ClassName NullPointerException = ClassName.get(NullPointerException.class);
 
+    public static final ClassName UnsupportedOperationException = ClassName.get(UnsupportedOperationException.class);
+
     // helper methods
 
     public static ParameterizedTypeName getCollection(TypeName type) {
@@ -175,6 +179,9 @@ public class Types {
         return ParameterizedTypeName.get(List, typeName);
     }
 
+    public static ParameterizedTypeName getIterable(TypeName typeName) {
+        return ParameterizedTypeName.get(ClassName.get(Iterable.class), typeName);
+    }
 
     public static TypeName getArrayList(ClassName typeName) {
         return ParameterizedTypeName.get(ClassName.get(ArrayList.class), typeName);
@@ -188,6 +195,10 @@ public class Types {
         return ParameterizedTypeName.get(Inserter, typeName);
     }
 
+    public static ParameterizedTypeName getUpserter(TypeName typeName) {
+        return ParameterizedTypeName.get(Upserter, typeName);
+    }
+
     public static ParameterizedTypeName getSingle(TypeName typeName) {
         return ParameterizedTypeName.get(Single, typeName);
     }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2015 FUJI Goro (gfx).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gfx.android.orma.processor.test;
+
+import com.google.testing.compile.JavaFileObjects;
+
+import com.github.gfx.android.orma.processor.OrmaProcessor;
+
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.common.truth.Truth.assert_;
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+public class CodeGeneratorTest {
+
+    /**
+     * The library is not in the classpath of the processor tests, so the generated code never compiles here.
+     * This ensures that the processor itself generates the code without exceptions nor errors of its own.
+     */
+    @Test
+    public void testModelWithoutPrimaryKey() throws Exception {
+        JavaFileObject modelFile = JavaFileObjects.forResource("NoPrimaryKey.java");
+
+        assert_().about(javaSource())
+                .that(modelFile)
+                .processedWith(new OrmaProcessor())
+                .failsToCompile()
+                .withErrorContaining("package com.github.gfx.android.orma does not exist");
+    }
+}